@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Compares crawling a local test site with a pool of platform worker threads
+ * and with a thread for every task from {@link WorkQueue#virtual(int)}. The
+ * site is served by an embedded Jetty server that waits a fixed latency before
+ * every response, like a remote server would, so the crawl is bound by the
+ * number of fetches in flight and not by the processor.
+ *
+ * This class is kept out of {@code src/main/java} so it is not part of the
+ * search engine, and is compiled against the compiled project and its
+ * dependencies:
+ *
+ * <pre>
+ * mvn compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * javac -cp target/classes:$(cat cp.txt) -d target/benchmark src/benchmark/java/CrawlBenchmark.java
+ * java -cp target/benchmark:target/classes:$(cat cp.txt) CrawlBenchmark [pages] [latency ms] [threads] [max running]
+ * </pre>
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class CrawlBenchmark {
+
+	/** The default number of pages on the test site. */
+	public static final int DEFAULT_PAGES = 500;
+
+	/** The default number of milliseconds before every response. */
+	public static final int DEFAULT_LATENCY = 50;
+
+	/**
+	 * Runs the benchmark
+	 *
+	 * @param args the number of pages, the latency in milliseconds, the number of
+	 *             platform worker threads and the max number of tasks running on
+	 *             virtual threads, all optional
+	 * @throws Exception if unable to start or stop the test site
+	 */
+	public static void main(String[] args) throws Exception {
+		int pages = argument(args, 0, DEFAULT_PAGES);
+		int latency = argument(args, 1, DEFAULT_LATENCY);
+		int threads = argument(args, 2, WorkQueue.DEFAULT);
+		int maxRunning = argument(args, 3, WorkQueue.DEFAULT_VIRTUAL);
+
+		// the test site needs a thread for every request it is waiting on
+		Server server = new Server(new QueuedThreadPool(Math.max(threads, maxRunning) + 50));
+		ServerConnector connector = new ServerConnector(server);
+		connector.setPort(0);
+		server.addConnector(connector);
+		server.setHandler(new SiteHandler(pages, latency));
+		server.start();
+
+		try {
+			URL seed = new URL("http://localhost:" + connector.getLocalPort() + "/page/0");
+			System.out.printf("%d pages, %d ms latency%n", pages, latency);
+
+			// the first crawl also warms up the classes used by both
+			crawl("warm up", () -> new WorkQueue(threads), seed, Math.min(pages, 20));
+			crawl("platform workers (" + threads + ")", () -> new WorkQueue(threads), seed, pages);
+			String name = WorkQueue.virtual(1).isVirtual() ? "virtual threads" : "platform thread per task";
+			crawl(name + " (max " + maxRunning + ")", () -> WorkQueue.virtual(maxRunning), seed, pages);
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Crawls the test site and prints how long it took
+	 *
+	 * @param name   the name of the work queue
+	 * @param queues creates the work queue
+	 * @param seed   the first page
+	 * @param max    the number of pages to crawl
+	 * @throws IOException if unable to crawl
+	 */
+	private static void crawl(String name, Supplier<WorkQueue> queues, URL seed, int max) throws IOException {
+		WorkQueue queue = queues.get();
+		ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+
+		Instant start = Instant.now();
+		new WebCrawler(max).crawl(seed, queue, index);
+		queue.join();
+		Duration elapsed = Duration.between(start, Instant.now());
+
+		System.out.printf("%-40s %6d pages %10.3f seconds%n", name, index.documents().size(),
+				elapsed.toMillis() / 1000.0);
+	}
+
+	/**
+	 * Helper function that parses an optional integer argument
+	 *
+	 * @param args         the arguments
+	 * @param index        the index of the argument
+	 * @param defaultValue the value if the argument is missing or invalid
+	 * @return the value
+	 */
+	private static int argument(String[] args, int index, int defaultValue) {
+		try {
+			return Math.max(Integer.parseInt(args[index]), 1);
+		} catch (RuntimeException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Serves the pages of the test site. Every page has some text and links to a
+	 * few other pages, so a crawl starting at the first page finds all of them.
+	 */
+	private static class SiteHandler extends AbstractHandler {
+		/** the number of pages */
+		private final int pages;
+
+		/** the number of milliseconds before every response */
+		private final int latency;
+
+		/**
+		 * constructor for the site handler
+		 *
+		 * @param pages   the number of pages
+		 * @param latency the number of milliseconds before every response
+		 */
+		public SiteHandler(int pages, int latency) {
+			this.pages = pages;
+			this.latency = latency;
+		}
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request,
+				HttpServletResponse response) throws IOException {
+			baseRequest.setHandled(true);
+
+			int page;
+			try {
+				page = Integer.parseInt(target.substring(target.lastIndexOf('/') + 1));
+			} catch (NumberFormatException e) {
+				page = -1;
+			}
+			if (!target.startsWith("/page/") || page < 0 || page >= pages) {
+				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			StringBuilder html = new StringBuilder();
+			html.append("<html><head><title>Page ").append(page).append("</title></head><body>\n");
+			html.append("<p>This is page number ").append(page)
+					.append(" of the test site, with a few sentences about crawling, threads and waiting.</p>\n");
+			for (int link : new int[] { page * 2 + 1, page * 2 + 2, page * 7 + 3, page + 1 }) {
+				html.append("<a href=\"/page/").append(link % pages).append("\">link</a>\n");
+			}
+			html.append("</body></html>\n");
+
+			response.setStatus(HttpServletResponse.SC_OK);
+			response.setContentType("text/html;charset=utf-8");
+			response.getWriter().write(html.toString());
+		}
+	}
+}
@@ -0,0 +1,382 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Crawls the web like {@link WebCrawler}, but fetches pages asynchronously
+ * with {@link HttpClient#sendAsync} instead of blocking a worker thread for
+ * every request. Up to a maximum number of requests are in flight at once, and
+ * the rest wait their turn without holding a thread. Only the pages that were
+ * fetched are passed to the work queue, where they are cleaned, searched for
+ * links and added to the index.
+ *
+ * Pages are fetched the same way {@link HtmlFetcher#fetch(URL, int)} does: up
+ * to 3 redirects are followed, and only HTML pages with status 200 are
+ * indexed. The bodies of all other responses are never read.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class AsyncWebCrawler {
+
+	/** The default max number of requests in flight. */
+	public static final int DEFAULT_REQUESTS = 256;
+
+	/** The number of redirects followed for every page. */
+	private static final int REDIRECTS = 3;
+
+	/** The number of seconds to wait for a response. */
+	private static final int TIMEOUT = 30;
+
+	/** stores the fingerprints of all the urls we used */
+	private final ConcurrentLongSet usedUrls;
+
+	/** the number of urls we used, never more than max once the crawl is full */
+	private final AtomicInteger used;
+
+	/** the max urls */
+	private final int max;
+
+	/** the max number of requests in flight */
+	private final int maxRequests;
+
+	/** sends the requests */
+	private final HttpClient client;
+
+	/** the requests waiting to be sent */
+	private final ArrayDeque<Request> waiting;
+
+	/** the number of requests in flight */
+	private int inFlight;
+
+	/** the number of pages being fetched or processed */
+	private int pending;
+
+	/** the work queue for processing pages */
+	private volatile WorkQueue queue;
+
+	/** the index we add to */
+	private volatile InvertedIndex myInvertedIndex;
+
+	/** skips pages whose text was already indexed, or null */
+	private final DuplicateDetector duplicates;
+
+	/**
+	 * constructor for async web crawler
+	 *
+	 * @param max         the max amount of urls
+	 * @param maxRequests the max number of requests in flight
+	 */
+	public AsyncWebCrawler(int max, int maxRequests) {
+		this(max, maxRequests, null);
+	}
+
+	/**
+	 * constructor for async web crawler that skips pages whose text was already
+	 * indexed
+	 *
+	 * @param max         the max amount of urls
+	 * @param maxRequests the max number of requests in flight
+	 * @param duplicates  skips pages whose text was already indexed, or null
+	 */
+	public AsyncWebCrawler(int max, int maxRequests, DuplicateDetector duplicates) {
+		this.usedUrls = new ConcurrentLongSet();
+		this.used = new AtomicInteger();
+		this.max = max;
+		this.maxRequests = Math.max(maxRequests, 1);
+		this.client = HttpClient.newBuilder()
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.connectTimeout(Duration.ofSeconds(TIMEOUT))
+				.build();
+		this.waiting = new ArrayDeque<>();
+		this.inFlight = 0;
+		this.pending = 0;
+		this.duplicates = duplicates;
+	}
+
+	/**
+	 * constructor for async web crawler with the default number of requests
+	 *
+	 * @param max the max amount of urls
+	 */
+	public AsyncWebCrawler(int max) {
+		this(max, DEFAULT_REQUESTS);
+	}
+
+	/**
+	 * crawls through from a desired seed, returning once every page was fetched
+	 * and added to the index
+	 *
+	 * @param seed            the starting url
+	 * @param queue           the work queue for processing pages
+	 * @param myInvertedIndex the index we add to
+	 */
+	public void crawl(URL seed, WorkQueue queue, InvertedIndex myInvertedIndex) {
+		this.queue = queue;
+		this.myInvertedIndex = myInvertedIndex;
+		use(seed);
+		schedule(seed);
+		dispatch();
+
+		synchronized (this) {
+			while (pending > 0) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					System.err.println("Warning: Crawler interrupted while finishing.");
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		queue.finish();
+	}
+
+	/**
+	 * Helper function that marks a url as used if there is room for it
+	 *
+	 * @param url the url
+	 * @return {@code true} if the url was new and there was room, so it should
+	 *         be fetched
+	 */
+	private boolean use(URL url) {
+		if (used.get() >= max) {
+			return false;
+		}
+		if (!usedUrls.add(ConcurrentLongSet.fingerprint(url.toString()))) {
+			return false;
+		}
+		return used.incrementAndGet() <= max;
+	}
+
+	/**
+	 * Helper function that adds a new page to fetch
+	 *
+	 * @param url the url of the page
+	 */
+	private synchronized void schedule(URL url) {
+		pending++;
+		waiting.addLast(new Request(url, url, REDIRECTS));
+	}
+
+	/**
+	 * Helper function that marks a page as done
+	 */
+	private synchronized void finished() {
+		pending--;
+		if (pending == 0) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Helper function that sends waiting requests while there is room for them
+	 */
+	private void dispatch() {
+		List<Request> ready = new ArrayList<>();
+		synchronized (this) {
+			while (inFlight < maxRequests && !waiting.isEmpty()) {
+				inFlight++;
+				ready.add(waiting.pollFirst());
+			}
+		}
+		for (Request request : ready) {
+			send(request);
+		}
+	}
+
+	/**
+	 * Helper function that sends a single request
+	 *
+	 * @param request the request
+	 */
+	private void send(Request request) {
+		HttpRequest http;
+		try {
+			http = HttpRequest.newBuilder(request.url.toURI())
+					.timeout(Duration.ofSeconds(TIMEOUT))
+					.header("Accept-Encoding", ContentEncoding.ACCEPT)
+					.GET()
+					.build();
+		} catch (Exception e) {
+			System.out.println("Error fetching URL: " + request.seed.toString());
+			synchronized (this) {
+				inFlight--;
+			}
+			finished();
+			dispatch();
+			return;
+		}
+
+		client.sendAsync(http, AsyncWebCrawler::body).whenComplete((response, error) -> {
+			synchronized (this) {
+				inFlight--;
+			}
+			received(request, response, error);
+			dispatch();
+		});
+	}
+
+	/**
+	 * Helper function that decides whether to read the body of a response. Only
+	 * HTML pages with status 200 are read, and decompressed if the server
+	 * compressed them.
+	 *
+	 * @param info the status and headers of the response
+	 * @return reads the body as UTF-8, or ignores it
+	 */
+	private static BodySubscriber<String> body(ResponseInfo info) {
+		Optional<String> type = info.headers().firstValue("Content-Type");
+		if (info.statusCode() == 200 && type.isPresent() && type.get().contains("text/html")) {
+			Optional<String> encoding = info.headers().firstValue("Content-Encoding");
+			if (encoding.isEmpty()) {
+				return BodySubscribers.ofString(StandardCharsets.UTF_8);
+			}
+			return BodySubscribers.mapping(BodySubscribers.ofByteArray(), bytes -> {
+				try (InputStream input = ContentEncoding.decode(new ByteArrayInputStream(bytes), encoding.get())) {
+					return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		return BodySubscribers.replacing(null);
+	}
+
+	/**
+	 * Helper function that handles a completed request
+	 *
+	 * @param request  the request
+	 * @param response the response, or null if it failed
+	 * @param error    why it failed, or null if it did not
+	 */
+	private void received(Request request, HttpResponse<String> response, Throwable error) {
+		if (error != null) {
+			System.out.println("Error fetching URL: " + request.seed.toString());
+			finished();
+			return;
+		}
+
+		if (response.body() != null) {
+			queue.execute(new Task(request.seed, response.body()));
+			return;
+		}
+
+		int status = response.statusCode();
+		Optional<String> location = response.headers().firstValue("Location");
+		if (status >= 300 && status <= 399 && location.isPresent() && request.redirects > 0) {
+			try {
+				URL redirect = new URL(request.url, location.get());
+				synchronized (this) {
+					waiting.addLast(new Request(request.seed, redirect, request.redirects - 1));
+				}
+				return;
+			} catch (Exception e) {
+				System.out.println("Error fetching URL: " + request.seed.toString());
+			}
+		}
+		finished();
+	}
+
+	/**
+	 * A page to fetch
+	 */
+	private static class Request {
+		/** the url the page was found at, used for links and the index */
+		private final URL seed;
+
+		/** the url to fetch, different from the seed after redirects */
+		private final URL url;
+
+		/** the number of redirects left to follow */
+		private final int redirects;
+
+		/**
+		 * constructor for request
+		 *
+		 * @param seed      the url the page was found at
+		 * @param url       the url to fetch
+		 * @param redirects the number of redirects left to follow
+		 */
+		public Request(URL seed, URL url, int redirects) {
+			this.seed = seed;
+			this.url = url;
+			this.redirects = redirects;
+		}
+	}
+
+	/**
+	 * Creates a runnable task that processes a fetched page
+	 *
+	 * @author colininns
+	 *
+	 */
+	private class Task implements Runnable {
+		/** the seed url */
+		private final URL seed;
+
+		/** the fetched html */
+		private final String body;
+
+		/**
+		 * Constructor for the task
+		 *
+		 * @param seed the seed url
+		 * @param body the fetched html
+		 */
+		public Task(URL seed, String body) {
+			this.seed = seed;
+			this.body = body;
+		}
+
+		@Override
+		public void run() {
+			try {
+				// the same lines HtmlFetcher would have joined
+				String html = new BufferedReader(new StringReader(body)).lines().collect(Collectors.joining("\n"));
+				ArrayList<String> hrefs = new ArrayList<String>();
+				String text = HtmlScanner.scan(html, hrefs::add);
+				ArrayList<String> words = new ArrayList<String>();
+				TextParser.parse(text, words::add);
+				if (duplicates != null) {
+					DuplicateDetector.Fingerprint fingerprint = duplicates.fingerprint();
+					words.forEach(fingerprint);
+					if (!duplicates.add(fingerprint)) {
+						return;
+					}
+				}
+
+				ArrayList<URL> urlList = LinkParser.getValidLinks(seed, hrefs);
+				for (URL currentUrl : urlList) {
+					if (use(currentUrl)) {
+						schedule(currentUrl);
+					}
+				}
+				dispatch();
+
+				myInvertedIndex.addAll(words, seed.toString());
+			} finally {
+				finished();
+			}
+		}
+	}
+}
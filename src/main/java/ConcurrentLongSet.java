@@ -0,0 +1,262 @@
+import java.util.function.LongConsumer;
+
+/**
+ * A thread-safe set of long values that takes about 10 to 20 bytes for every
+ * value, instead of the hundreds a {@code HashSet<String>} of urls takes. The
+ * values are kept in open addressing tables of primitive longs. The tables are
+ * split into segments with a lock each, so threads adding different values
+ * rarely wait on each other.
+ *
+ * The crawler stores a 64 bit fingerprint of every url from
+ * {@link #fingerprint(String)} instead of the url itself. Two different urls
+ * only share a fingerprint about once in every 10^19 pairs, so even a crawl of
+ * millions of urls is very unlikely to skip a page by mistake.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class ConcurrentLongSet {
+
+	/** The default number of segments. */
+	public static final int DEFAULT_SEGMENTS = 64;
+
+	/** The number of slots a segment starts with. */
+	private static final int INITIAL_SLOTS = 16;
+
+	/** the segments, chosen by the top bits of the mixed value */
+	private final Segment[] segments;
+
+	/** the number of bits used to choose a segment */
+	private final int shift;
+
+	/** {@code true} if zero is in the set, since zero marks an empty slot */
+	private volatile boolean zero;
+
+	/**
+	 * Constructor for concurrent long set
+	 *
+	 * @param segments the number of segments, rounded up to a power of two
+	 */
+	public ConcurrentLongSet(int segments) {
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(segments, 1) - 1);
+		this.segments = new Segment[1 << bits];
+		this.shift = 64 - bits;
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = new Segment();
+		}
+		this.zero = false;
+	}
+
+	/**
+	 * Constructor for concurrent long set with the default number of segments
+	 */
+	public ConcurrentLongSet() {
+		this(DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 * adds a value to the set
+	 *
+	 * @param value the value
+	 * @return {@code true} if the value was not already in the set
+	 */
+	public boolean add(long value) {
+		if (value == 0) {
+			synchronized (this) {
+				boolean added = !zero;
+				zero = true;
+				return added;
+			}
+		}
+		long mixed = mix(value);
+		return segment(mixed).add(value, mixed);
+	}
+
+	/**
+	 * checks if a value is in the set
+	 *
+	 * @param value the value
+	 * @return {@code true} if the value is in the set
+	 */
+	public boolean contains(long value) {
+		if (value == 0) {
+			return zero;
+		}
+		long mixed = mix(value);
+		return segment(mixed).contains(value, mixed);
+	}
+
+	/**
+	 * gets the number of values in the set
+	 *
+	 * @return the size of the set
+	 */
+	public int size() {
+		int size = zero ? 1 : 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * performs an action for every value in the set, in no particular order. Each
+	 * segment is locked while its values are passed to the action, so values
+	 * added at the same time may or may not be seen.
+	 *
+	 * @param action the action
+	 */
+	public void forEach(LongConsumer action) {
+		if (zero) {
+			action.accept(0);
+		}
+		for (Segment segment : segments) {
+			segment.forEach(action);
+		}
+	}
+
+	/**
+	 * Creates a 64 bit fingerprint of a string, used to store urls in the set
+	 *
+	 * @param text the string
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(String text) {
+		// 64 bit FNV-1a over the characters, then mixed so every bit counts
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash ^ text.length());
+	}
+
+	/**
+	 * Helper function that spreads the bits of a value, the finalizer of
+	 * SplitMix64
+	 *
+	 * @param value the value
+	 * @return the mixed value
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Helper function that chooses the segment of a mixed value
+	 *
+	 * @param mixed the mixed value
+	 * @return the segment
+	 */
+	private Segment segment(long mixed) {
+		return segments.length == 1 ? segments[0] : segments[(int) (mixed >>> shift)];
+	}
+
+	/**
+	 * An open addressing table of longs with linear probing, where zero marks an
+	 * empty slot
+	 */
+	private static class Segment {
+		/** the slots */
+		private long[] slots;
+
+		/** the number of values */
+		private int size;
+
+		/**
+		 * constructor for segment
+		 */
+		public Segment() {
+			this.slots = new long[INITIAL_SLOTS];
+			this.size = 0;
+		}
+
+		/**
+		 * adds a value to the segment
+		 *
+		 * @param value the value, not zero
+		 * @param mixed the mixed value
+		 * @return {@code true} if the value was not already in the segment
+		 */
+		public synchronized boolean add(long value, long mixed) {
+			int mask = slots.length - 1;
+			int slot = (int) mixed & mask;
+			while (slots[slot] != 0) {
+				if (slots[slot] == value) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = value;
+			size++;
+
+			// grow at three quarters full so probes stay short
+			if (size > slots.length - (slots.length >>> 2)) {
+				grow();
+			}
+			return true;
+		}
+
+		/**
+		 * checks if a value is in the segment
+		 *
+		 * @param value the value, not zero
+		 * @param mixed the mixed value
+		 * @return {@code true} if the value is in the segment
+		 */
+		public synchronized boolean contains(long value, long mixed) {
+			int mask = slots.length - 1;
+			int slot = (int) mixed & mask;
+			while (slots[slot] != 0) {
+				if (slots[slot] == value) {
+					return true;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return false;
+		}
+
+		/**
+		 * gets the number of values in the segment
+		 *
+		 * @return the size of the segment
+		 */
+		public synchronized int size() {
+			return size;
+		}
+
+		/**
+		 * performs an action for every value in the segment
+		 *
+		 * @param action the action
+		 */
+		public synchronized void forEach(LongConsumer action) {
+			for (long value : slots) {
+				if (value != 0) {
+					action.accept(value);
+				}
+			}
+		}
+
+		/**
+		 * Helper function that doubles the number of slots
+		 */
+		private void grow() {
+			long[] old = slots;
+			slots = new long[old.length * 2];
+			int mask = slots.length - 1;
+			for (long value : old) {
+				if (value != 0) {
+					int slot = (int) mix(value) & mask;
+					while (slots[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+					slots[slot] = value;
+				}
+			}
+		}
+	}
+}
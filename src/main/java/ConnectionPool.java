@@ -0,0 +1,724 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches URLs the same way as {@link HttpsFetcher#fetchURL(URL)}, but keeps
+ * the connections open between requests so the next request to the same host
+ * does not need to connect (and for HTTPS, shake hands) again. Every host has
+ * its own pool of at most a maximum number of connections. Threads wait for a
+ * connection if all of them are in use. Connections left unused for longer
+ * than the idle timeout are closed instead of reused.
+ *
+ * The response is read byte by byte, so the end of every response is found
+ * from its "Content-Length" header or its chunked encoding and the connection
+ * can be used again. A response without either is read until the server closes
+ * the connection. If the server closed a reused connection while it was idle,
+ * the request is sent once more over a new connection.
+ *
+ * Every request asks for a compressed body, which is decompressed while it is
+ * read using {@link ContentEncoding}.
+ *
+ * The body can also be read while it arrives using
+ * {@link #stream(URL, BodyReader)}, so it never has to be in memory as a whole.
+ * The connection is only used again if the body was read to its end.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class ConnectionPool implements Closeable {
+
+	/** The default max number of connections to each host. */
+	public static final int DEFAULT_CONNECTIONS = 4;
+
+	/** The default number of milliseconds a connection may be unused. */
+	public static final long DEFAULT_IDLE_TIMEOUT = 15_000;
+
+	/** the pool of every host, by protocol, host and port */
+	private final HashMap<String, Host> hosts;
+
+	/** the max number of connections to each host */
+	private final int maxConnections;
+
+	/** the number of milliseconds a connection may be unused */
+	private final long idleTimeout;
+
+	/** the number of connections opened */
+	private final LongAdder opened;
+
+	/** the number of requests sent over a connection that was already open */
+	private final LongAdder reused;
+
+	/** {@code true} once the pool is closed */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for connection pool
+	 *
+	 * @param maxConnections the max number of connections to each host
+	 * @param idleTimeout    the number of milliseconds a connection may be unused
+	 */
+	public ConnectionPool(int maxConnections, long idleTimeout) {
+		this.hosts = new HashMap<>();
+		this.maxConnections = Math.max(maxConnections, 1);
+		this.idleTimeout = Math.max(idleTimeout, 0);
+		this.opened = new LongAdder();
+		this.reused = new LongAdder();
+		this.closed = false;
+	}
+
+	/**
+	 * Constructor for connection pool with the default limits
+	 */
+	public ConnectionPool() {
+		this(DEFAULT_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Fetches the headers and content for the specified URL. The content is
+	 * placed as a list of all the lines fetched under the "Content" key.
+	 *
+	 * @param url the url to fetch
+	 * @return a map with the headers and content
+	 * @throws IOException if unable to fetch headers and content
+	 *
+	 * @see HttpsFetcher#fetchURL(URL)
+	 */
+	public Map<String, List<String>> fetch(URL url) throws IOException {
+		Map<String, List<String>> results = new HashMap<>();
+		stream(url, (headers, body) -> {
+			results.putAll(headers);
+			results.put("Content", lines(body.readAllBytes()));
+		});
+		return results;
+	}
+
+	/**
+	 * Fetches the headers and content for the specified URL over a new connection
+	 * that is closed afterwards. The content is placed as a list of all the lines
+	 * fetched under the "Content" key.
+	 *
+	 * @param url the url to fetch
+	 * @return a map with the headers and content
+	 * @throws IOException if unable to fetch headers and content
+	 *
+	 * @see #fetch(URL)
+	 */
+	public static Map<String, List<String>> fetchOnce(URL url) throws IOException {
+		Map<String, List<String>> results = new HashMap<>();
+		streamOnce(url, (headers, body) -> {
+			results.putAll(headers);
+			results.put("Content", lines(body.readAllBytes()));
+		});
+		return results;
+	}
+
+	/**
+	 * Fetches the specified URL and passes its headers and body to the reader
+	 * while the body arrives. The connection is only reused if the reader read
+	 * the body to its end.
+	 *
+	 * @param url    the url to fetch
+	 * @param reader reads the response
+	 * @throws IOException if unable to fetch the response or the reader fails
+	 */
+	public void stream(URL url, BodyReader reader) throws IOException {
+		Host host = host(url);
+		Connection connection = host.acquire();
+		boolean reusable = false;
+		try {
+			Response response;
+			if (connection.socket == null) {
+				connection.open(url);
+				opened.increment();
+				response = connection.exchange(url, true);
+			} else {
+				reused.increment();
+				try {
+					response = connection.exchange(url, true);
+				} catch (IOException e) {
+					// the server closed the connection while it was idle
+					connection.close();
+					connection.open(url);
+					opened.increment();
+					response = connection.exchange(url, true);
+				}
+			}
+			reader.read(response.headers, response.body());
+			reusable = response.finished();
+		} finally {
+			host.release(connection, reusable);
+		}
+	}
+
+	/**
+	 * Fetches the specified URL over a new connection that is closed afterwards,
+	 * passing its headers and body to the reader while the body arrives
+	 *
+	 * @param url    the url to fetch
+	 * @param reader reads the response
+	 * @throws IOException if unable to fetch the response or the reader fails
+	 */
+	public static void streamOnce(URL url, BodyReader reader) throws IOException {
+		Connection connection = new Connection();
+		try {
+			connection.open(url);
+			Response response = connection.exchange(url, false);
+			reader.read(response.headers, response.body());
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Helper function that gets the pool of a host, creating it if needed
+	 *
+	 * @param url the url being fetched
+	 * @return the pool of its host
+	 */
+	private Host host(URL url) {
+		String protocol = url.getProtocol() == null ? "http" : url.getProtocol().toLowerCase();
+		int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+		String key = protocol + "://" + url.getHost().toLowerCase() + ":" + port;
+		synchronized (hosts) {
+			return hosts.computeIfAbsent(key, k -> new Host());
+		}
+	}
+
+	/**
+	 * gets the number of connections opened
+	 *
+	 * @return the number of connections opened
+	 */
+	public long getOpened() {
+		return opened.sum();
+	}
+
+	/**
+	 * gets the number of requests sent over a connection that was already open
+	 *
+	 * @return the number of reused connections
+	 */
+	public long getReused() {
+		return reused.sum();
+	}
+
+	/**
+	 * Closes every idle connection. Connections in use are closed once their
+	 * request is done, and no more requests can be made.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		List<Host> all;
+		synchronized (hosts) {
+			all = new ArrayList<>(hosts.values());
+		}
+		for (Host host : all) {
+			synchronized (host) {
+				for (Connection connection : host.idle) {
+					connection.close();
+					host.open--;
+				}
+				host.idle.clear();
+				host.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d connections opened, %d reused", getOpened(), getReused());
+	}
+
+	/**
+	 * The connections to a single host
+	 */
+	private class Host {
+		/** the open connections not in use, least recently used first */
+		private final ArrayDeque<Connection> idle;
+
+		/** the number of connections open or being opened, including idle ones */
+		private int open;
+
+		/**
+		 * constructor for host
+		 */
+		public Host() {
+			this.idle = new ArrayDeque<>();
+			this.open = 0;
+		}
+
+		/**
+		 * Gets a connection to use, waiting if every connection is in use. The
+		 * connection is not open yet if it is new.
+		 *
+		 * @return the connection
+		 * @throws IOException if the pool is closed or the thread is interrupted
+		 */
+		public synchronized Connection acquire() throws IOException {
+			while (true) {
+				if (closed) {
+					throw new IOException("The connection pool is closed.");
+				}
+
+				long now = System.currentTimeMillis();
+				while (!idle.isEmpty() && now - idle.peekFirst().idleSince > idleTimeout) {
+					idle.pollFirst().close();
+					open--;
+				}
+
+				if (!idle.isEmpty()) {
+					return idle.pollLast();
+				}
+
+				if (open < maxConnections) {
+					open++;
+					return new Connection();
+				}
+
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for a connection.", e);
+				}
+			}
+		}
+
+		/**
+		 * Gives back a connection once its request is done
+		 *
+		 * @param connection the connection
+		 * @param reusable   {@code true} if the connection can be used again
+		 */
+		public synchronized void release(Connection connection, boolean reusable) {
+			if (reusable && !closed) {
+				connection.idleSince = System.currentTimeMillis();
+				idle.addLast(connection);
+			} else {
+				connection.close();
+				open--;
+			}
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Reads a response while its body arrives
+	 */
+	@FunctionalInterface
+	public interface BodyReader {
+		/**
+		 * reads a response
+		 *
+		 * @param headers the status line and headers of the response
+		 * @param body    the body, which ends where the response ends
+		 * @throws IOException if unable to read the body
+		 */
+		void read(Map<String, List<String>> headers, InputStream body) throws IOException;
+	}
+
+	/**
+	 * A single connection and its streams
+	 */
+	private static class Connection {
+		/** the socket, or null if not open */
+		private Socket socket;
+
+		/** the response from the server */
+		private InputStream input;
+
+		/** the requests to the server */
+		private OutputStream output;
+
+		/** when the connection was last given back */
+		private long idleSince;
+
+		/**
+		 * opens the connection
+		 *
+		 * @param url the url being fetched
+		 * @throws IOException if unable to connect
+		 */
+		public void open(URL url) throws IOException {
+			socket = HttpsFetcher.openConnection(url);
+			input = new BufferedInputStream(socket.getInputStream());
+			output = new BufferedOutputStream(socket.getOutputStream());
+		}
+
+		/**
+		 * closes the connection, ignoring any errors
+		 */
+		public void close() {
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// the connection is being thrown away either way
+				}
+				socket = null;
+			}
+		}
+
+		/**
+		 * Sends a GET request and reads the headers of the response
+		 *
+		 * @param url       the url to fetch
+		 * @param keepAlive {@code true} to ask the server to keep the connection
+		 *                  open
+		 * @return the response, with the body not read yet
+		 * @throws IOException if unable to send the request or read the headers
+		 */
+		public Response exchange(URL url, boolean keepAlive) throws IOException {
+			String resource = url.getFile().isEmpty() ? "/" : url.getFile();
+			String request = String.format(
+					"GET %s HTTP/1.1\r\nHost: %s\r\nConnection: %s\r\nAccept-Encoding: %s\r\n\r\n", resource,
+					url.getHost(), keepAlive ? "keep-alive" : "close", ContentEncoding.ACCEPT);
+			output.write(request.getBytes(StandardCharsets.UTF_8));
+			output.flush();
+
+			String status;
+			Map<String, List<String>> headers;
+			int code;
+			do {
+				// interim responses like 100 or 103 come before the real one
+				status = readLine(input);
+				if (status == null) {
+					throw new EOFException("The connection was closed before a response.");
+				}
+
+				headers = new HashMap<>();
+				headers.put(null, List.of(status));
+				String line;
+				while ((line = readLine(input)) != null && !line.isEmpty()) {
+					int colon = line.indexOf(':');
+					if (colon > 0) {
+						headers.computeIfAbsent(line.substring(0, colon), key -> new ArrayList<>())
+								.add(line.substring(colon + 1).stripLeading());
+					}
+				}
+				code = HtmlFetcher.getStatusCode(headers);
+			} while (code >= 100 && code < 200);
+
+			keepAlive = keepAlive && status.startsWith("HTTP/1.1")
+					&& !"close".equalsIgnoreCase(header(headers, "Connection"));
+			InputStream body;
+			String length = header(headers, "Content-Length");
+			String encoding = header(headers, "Transfer-Encoding");
+
+			if (code == 204 || code == 304) {
+				body = InputStream.nullInputStream();
+			} else if (encoding != null && encoding.toLowerCase().contains("chunked")) {
+				body = new ChunkedBody(input);
+			} else if (length != null) {
+				try {
+					body = new LengthBody(input, Long.parseLong(length.strip()));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid Content-Length: " + length, e);
+				}
+			} else {
+				body = new LengthBody(input, Long.MAX_VALUE);
+				keepAlive = false;
+			}
+			return new Response(headers, body, keepAlive);
+		}
+	}
+
+	/**
+	 * The headers of a response and its body, which is read while it arrives
+	 */
+	private static class Response {
+		/** the status line and headers */
+		private final Map<String, List<String>> headers;
+
+		/** the body as it was sent */
+		private final InputStream body;
+
+		/** the body after undoing its content encoding, or null if not read yet */
+		private InputStream decoded;
+
+		/** {@code true} if the server keeps the connection open */
+		private final boolean keepAlive;
+
+		/**
+		 * constructor for response
+		 *
+		 * @param headers   the status line and headers
+		 * @param body      the body
+		 * @param keepAlive {@code true} if the server keeps the connection open
+		 */
+		public Response(Map<String, List<String>> headers, InputStream body, boolean keepAlive) {
+			this.headers = headers;
+			this.body = body;
+			this.keepAlive = keepAlive;
+			this.decoded = null;
+		}
+
+		/**
+		 * gets the body, decompressed if the server compressed it
+		 *
+		 * @return the body
+		 * @throws IOException if the encoding is not supported or unable to read
+		 *                     the start of the body
+		 */
+		public InputStream body() throws IOException {
+			if (decoded == null) {
+				decoded = ContentEncoding.decode(body, header(headers, "Content-Encoding"));
+			}
+			return decoded;
+		}
+
+		/**
+		 * checks if the connection can be used for the next request, which it only
+		 * can if the body was read to its end
+		 *
+		 * @return {@code true} if the connection can be used again
+		 */
+		public boolean finished() {
+			if (!keepAlive) {
+				return false;
+			}
+			try {
+				return body.read() < 0 && !(body instanceof LengthBody && ((LengthBody) body).truncated);
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * A body of a known length, or of any length if it ends when the server
+	 * closes the connection. Closing it leaves the connection open.
+	 */
+	private static class LengthBody extends InputStream {
+		/** the response, right after the headers */
+		private final InputStream input;
+
+		/** the number of bytes left */
+		private long remaining;
+
+		/** {@code true} if the connection was closed before the end */
+		private boolean truncated;
+
+		/**
+		 * constructor for length body
+		 *
+		 * @param input  the response, right after the headers
+		 * @param length the length of the body
+		 */
+		public LengthBody(InputStream input, long length) {
+			this.input = input;
+			this.remaining = length;
+			this.truncated = false;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = input.read();
+			if (b < 0) {
+				truncated = true;
+				remaining = 0;
+				return -1;
+			}
+			remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = input.read(bytes, offset, (int) Math.min(length, remaining));
+			if (read < 0) {
+				truncated = true;
+				remaining = 0;
+				return -1;
+			}
+			remaining -= read;
+			return read;
+		}
+	}
+
+	/**
+	 * A body in the chunked transfer encoding. Closing it leaves the connection
+	 * open.
+	 */
+	private static class ChunkedBody extends InputStream {
+		/** the response, right after the headers */
+		private final InputStream input;
+
+		/** the number of bytes left in the current chunk */
+		private int remaining;
+
+		/** {@code true} once the first chunk was started */
+		private boolean started;
+
+		/** {@code true} once the last chunk and the trailers were read */
+		private boolean done;
+
+		/**
+		 * constructor for chunked body
+		 *
+		 * @param input the response, right after the headers
+		 */
+		public ChunkedBody(InputStream input) {
+			this.input = input;
+			this.remaining = 0;
+			this.started = false;
+			this.done = false;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!next()) {
+				return -1;
+			}
+			int b = input.read();
+			if (b < 0) {
+				throw new EOFException("The connection was closed in a chunked response.");
+			}
+			remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (!next()) {
+				return -1;
+			}
+			int read = input.read(bytes, offset, Math.min(length, remaining));
+			if (read < 0) {
+				throw new EOFException("The connection was closed in a chunked response.");
+			}
+			remaining -= read;
+			return read;
+		}
+
+		/**
+		 * Helper function that starts the next chunk if the current one is used up
+		 *
+		 * @return {@code true} if there are bytes left, {@code false} at the end of
+		 *         the body
+		 * @throws IOException if unable to read the response
+		 */
+		private boolean next() throws IOException {
+			if (done) {
+				return false;
+			}
+			if (remaining > 0) {
+				return true;
+			}
+			if (started) {
+				// the line ending after the previous chunk
+				readLine(input);
+			}
+			started = true;
+
+			String line = readLine(input);
+			if (line == null) {
+				throw new EOFException("The connection was closed in a chunked response.");
+			}
+			int extension = line.indexOf(';');
+			String size = (extension < 0 ? line : line.substring(0, extension)).strip();
+			try {
+				remaining = Integer.parseInt(size, 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid chunk size: " + line, e);
+			}
+			if (remaining < 0) {
+				throw new IOException("Invalid chunk size: " + line);
+			}
+
+			if (remaining == 0) {
+				// skip the trailer headers
+				while ((line = readLine(input)) != null && !line.isEmpty()) {
+					continue;
+				}
+				done = true;
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Helper function that gets the first value of a header, ignoring case
+	 *
+	 * @param headers the headers
+	 * @param name    the name of the header
+	 * @return the first value, or null if there is none
+	 */
+	private static String header(Map<String, List<String>> headers, String name) {
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+				return header.getValue().get(0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Helper function that reads a line ending in a line feed, with or without a
+	 * carriage return
+	 *
+	 * @param input the response
+	 * @return the line without its ending, or null if the response ended first
+	 * @throws IOException if unable to read the response
+	 */
+	private static String readLine(InputStream input) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = input.read()) != '\n') {
+			if (b < 0) {
+				return line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+			}
+			line.write(b);
+		}
+		byte[] bytes = line.toByteArray();
+		int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+		return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Helper function that splits the body into lines the same way
+	 * {@link HttpsFetcher#getContent(BufferedReader)} does
+	 *
+	 * @param body the body
+	 * @return the lines of the body
+	 * @throws IOException if unable to read the body
+	 */
+	private static List<String> lines(byte[] body) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new StringReader(new String(body, StandardCharsets.UTF_8)))) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Undoes the compression a server applied to a response body, as named by its
+ * "Content-Encoding" header. Only the encodings named in {@link #ACCEPT} are
+ * asked for, so only those are supported. The body is decompressed while it is
+ * read, so a compressed page never has to be in memory as a whole.
+ *
+ * Servers disagree on what "deflate" means: the standard says a zlib stream,
+ * but some send raw deflate data. Both are accepted by looking at the first two
+ * bytes for a zlib header.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class ContentEncoding {
+
+	/** The value of the "Accept-Encoding" header sent with every request. */
+	public static final String ACCEPT = "gzip, deflate";
+
+	/** The number of compressed bytes read at a time. */
+	private static final int BUFFER = 8192;
+
+	/**
+	 * Wraps a body so it is decompressed while it is read
+	 *
+	 * @param body     the body as it was sent
+	 * @param encoding the value of the "Content-Encoding" header, or null if
+	 *                 there is none
+	 * @return the decompressed body
+	 * @throws IOException if the encoding is not supported or unable to read the
+	 *                     start of the body
+	 */
+	public static InputStream decode(InputStream body, String encoding) throws IOException {
+		if (encoding == null || encoding.isBlank() || encoding.strip().equalsIgnoreCase("identity")) {
+			return body;
+		}
+
+		PushbackInputStream input = new PushbackInputStream(body, 2);
+		byte[] start = input.readNBytes(2);
+		input.unread(start);
+		if (start.length == 0) {
+			// responses without a body may still name an encoding
+			return input;
+		}
+
+		switch (encoding.strip().toLowerCase()) {
+			case "gzip":
+			case "x-gzip":
+				return new GZIPInputStream(input, BUFFER);
+			case "deflate":
+				return new InflaterInputStream(input, new Inflater(!isZlib(start)), BUFFER);
+			default:
+				throw new IOException("Unsupported Content-Encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Helper function that checks if a deflate body starts with a zlib header
+	 *
+	 * @param start the first bytes of the body
+	 * @return {@code true} if the body is a zlib stream, {@code false} if it is
+	 *         raw deflate data
+	 */
+	private static boolean isZlib(byte[] start) {
+		if (start.length < 2) {
+			return false;
+		}
+		int header = ((start[0] & 0xff) << 8) | (start[1] & 0xff);
+		return (start[0] & 0x0f) == 8 && header % 31 == 0;
+	}
+}
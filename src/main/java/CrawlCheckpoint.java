@@ -0,0 +1,220 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the progress of a crawl to a directory, so a crawl that stops partway
+ * can be resumed without fetching the pages it already indexed. A checkpoint
+ * is made of two files:
+ *
+ * <pre>
+ * index-[n].bin: the index built so far, in the format of {@link IndexFile}
+ * crawl.bin:     int magic, int version, the name of the index file,
+ *                int count, then every url still waiting to be indexed,
+ *                int count, then every fingerprint in the seen set as a long,
+ *                then the fingerprints of the {@link DuplicateDetector}, if any
+ * </pre>
+ *
+ * Every save writes a new index file and then replaces {@code crawl.bin} in a
+ * single atomic move, so the directory always holds a complete checkpoint even
+ * if the crawl dies while saving. Index files no longer named by
+ * {@code crawl.bin} are deleted afterwards.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class CrawlCheckpoint {
+
+	/** Marks the start of every crawl file. */
+	public static final int MAGIC = 0x43524157;
+
+	/** The version of the format written by this class. */
+	public static final int VERSION = 2;
+
+	/** The default number of milliseconds between checkpoints. */
+	public static final long DEFAULT_INTERVAL = 60_000;
+
+	/** The name of the crawl file. */
+	private static final String CRAWL = "crawl.bin";
+
+	/** the directory the checkpoint is saved in */
+	private final Path directory;
+
+	/** the number of milliseconds between checkpoints */
+	private final long interval;
+
+	/** when the last checkpoint was saved, or the crawl started */
+	private final AtomicLong last;
+
+	/** the number of the last index file written */
+	private long sequence;
+
+	/**
+	 * Constructor for crawl checkpoint
+	 *
+	 * @param directory the directory the checkpoint is saved in
+	 * @param interval  the number of milliseconds between checkpoints
+	 */
+	public CrawlCheckpoint(Path directory, long interval) {
+		this.directory = directory;
+		this.interval = Math.max(interval, 0);
+		this.last = new AtomicLong(System.currentTimeMillis());
+		this.sequence = 0;
+	}
+
+	/**
+	 * Constructor for crawl checkpoint with the default interval
+	 *
+	 * @param directory the directory the checkpoint is saved in
+	 */
+	public CrawlCheckpoint(Path directory) {
+		this(directory, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Checks if there is a checkpoint to resume from
+	 *
+	 * @return {@code true} if the directory holds a checkpoint
+	 */
+	public boolean exists() {
+		return Files.isRegularFile(directory.resolve(CRAWL));
+	}
+
+	/**
+	 * Checks if it is time for the next checkpoint. Only one of the threads
+	 * asking at the same time is told to save it.
+	 *
+	 * @return {@code true} if the caller should save a checkpoint now
+	 */
+	public boolean due() {
+		long now = System.currentTimeMillis();
+		long previous = last.get();
+		return now - previous >= interval && last.compareAndSet(previous, now);
+	}
+
+	/**
+	 * Saves a checkpoint. The caller must make sure the crawl does not change
+	 * the index, the seen set or the pending urls until this returns.
+	 *
+	 * @param index      the index built so far
+	 * @param seen       the fingerprints of every url found
+	 * @param pending    the urls found but not indexed yet
+	 * @param duplicates the fingerprints of the pages indexed so far, or null
+	 * @throws IOException if unable to write the checkpoint
+	 */
+	public synchronized void save(InvertedIndex index, ConcurrentLongSet seen, Collection<String> pending,
+			DuplicateDetector duplicates) throws IOException {
+		Files.createDirectories(directory);
+
+		// a new name every time, so the index named by the current crawl file is never touched
+		sequence = Math.max(sequence + 1, System.currentTimeMillis());
+		String name = "index-" + sequence + ".bin";
+		index.binaryWriter(directory.resolve(name));
+
+		Path temp = directory.resolve(CRAWL + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(name);
+
+			output.writeInt(pending.size());
+			for (String url : pending) {
+				output.writeUTF(url);
+			}
+
+			output.writeInt(seen.size());
+			IOException[] error = new IOException[1];
+			seen.forEach(fingerprint -> {
+				try {
+					output.writeLong(fingerprint);
+				} catch (IOException e) {
+					error[0] = e;
+				}
+			});
+			if (error[0] != null) {
+				throw error[0];
+			}
+
+			output.writeBoolean(duplicates != null);
+			if (duplicates != null) {
+				duplicates.write(output);
+			}
+		}
+		Files.move(temp, directory.resolve(CRAWL), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		last.set(System.currentTimeMillis());
+
+		// the old index files are no longer needed
+		try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, "index-*.bin")) {
+			for (Path path : old) {
+				if (!path.getFileName().toString().equals(name)) {
+					Files.deleteIfExists(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads the latest checkpoint
+	 *
+	 * @param index      the index to add the saved index to
+	 * @param seen       the set to add the saved fingerprints to
+	 * @param duplicates the detector to add the saved page fingerprints to, or
+	 *                   null
+	 * @return the urls found but not indexed yet
+	 * @throws IOException if unable to read the checkpoint or it is not a crawl
+	 *                     checkpoint
+	 */
+	public synchronized List<String> load(InvertedIndex index, ConcurrentLongSet seen, DuplicateDetector duplicates)
+			throws IOException {
+		Path path = directory.resolve(CRAWL);
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException("Not a crawl checkpoint: " + path);
+			}
+			int version = input.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported crawl checkpoint version " + version + ": " + path);
+			}
+			String name = input.readUTF();
+
+			int count = input.readInt();
+			List<String> pending = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				pending.add(input.readUTF());
+			}
+
+			count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				seen.add(input.readLong());
+			}
+
+			// a crawl saved without -dedup has no page fingerprints to restore
+			if (input.readBoolean() && duplicates != null) {
+				duplicates.read(input);
+			}
+
+			index.binaryReader(directory.resolve(name));
+			sequence = Math.max(sequence, Long.parseLong(name.substring(6, name.length() - 4)));
+			return pending;
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			throw new IOException("Bad index file name in crawl checkpoint: " + path, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return directory.toString();
+	}
+}
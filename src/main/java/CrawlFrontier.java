@@ -0,0 +1,266 @@
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Decides when the pages found by a crawler are visited, so no host is sent
+ * requests faster than is polite. Every host has its own queue of pages. A host
+ * is only sent a new request once a minimum delay has passed since its last
+ * request started, and only while fewer than a maximum number of its requests
+ * are in progress. Hosts that are ready take turns, so a page full of links to
+ * one host does not hold up the pages of every other host.
+ *
+ * Pages are passed to the work queue as soon as their host is ready. Hosts
+ * waiting for their delay to pass are woken up by a timer thread.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class CrawlFrontier {
+
+	/** The default number of milliseconds between requests to the same host. */
+	public static final long DEFAULT_DELAY = 0;
+
+	/** The default max number of requests in progress to the same host. */
+	public static final int DEFAULT_PER_HOST = 2;
+
+	/** the number of milliseconds between requests to the same host */
+	private final long delay;
+
+	/** the max number of requests in progress to the same host */
+	private final int maxPerHost;
+
+	/** the queue of every host, by host name and port */
+	private final HashMap<String, Host> hosts;
+
+	/** the hosts that can be sent a request now, in turn */
+	private final ArrayDeque<Host> ready;
+
+	/** the hosts waiting for their delay to pass, soonest first */
+	private final PriorityQueue<Host> delayed;
+
+	/** wakes up the hosts waiting for their delay to pass */
+	private final ScheduledExecutorService timer;
+
+	/** when the timer will wake up next, or {@link Long#MAX_VALUE} if it will not */
+	private long wakeup;
+
+	/** the number of pages added but not visited yet */
+	private int pending;
+
+	/** the work queue the pages are passed to */
+	private WorkQueue queue;
+
+	/** visits a single page */
+	private Consumer<URL> visitor;
+
+	/**
+	 * Constructor for crawl frontier
+	 *
+	 * @param delay      the number of milliseconds between requests to the same
+	 *                   host
+	 * @param maxPerHost the max number of requests in progress to the same host
+	 */
+	public CrawlFrontier(long delay, int maxPerHost) {
+		this.delay = Math.max(delay, 0);
+		this.maxPerHost = Math.max(maxPerHost, 1);
+		this.hosts = new HashMap<>();
+		this.ready = new ArrayDeque<>();
+		this.delayed = new PriorityQueue<>((one, two) -> Long.compare(one.next, two.next));
+		this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "CrawlFrontier");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.wakeup = Long.MAX_VALUE;
+		this.pending = 0;
+	}
+
+	/**
+	 * Sets where pages are visited, call before adding any pages
+	 *
+	 * @param queue   the work queue the pages are passed to
+	 * @param visitor visits a single page on the work queue
+	 */
+	public synchronized void start(WorkQueue queue, Consumer<URL> visitor) {
+		this.queue = queue;
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Adds a page to visit once its host is ready
+	 *
+	 * @param url the page
+	 */
+	public synchronized void add(URL url) {
+		String name = url.getHost().toLowerCase() + ":" + (url.getPort() < 0 ? url.getDefaultPort() : url.getPort());
+		Host host = hosts.computeIfAbsent(name, key -> new Host());
+		host.urls.addLast(url);
+		pending++;
+		if (!host.placed) {
+			place(host, System.currentTimeMillis());
+		}
+		dispatch();
+	}
+
+	/**
+	 * Waits until every page added was visited, then stops the timer. The
+	 * frontier cannot be used after this call completes.
+	 */
+	public synchronized void finish() {
+		while (pending > 0) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				System.err.println("Warning: Crawl frontier interrupted while finishing.");
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		timer.shutdownNow();
+	}
+
+	/**
+	 * Gets the number of pages added but not visited yet
+	 *
+	 * @return the number of pending pages
+	 */
+	public synchronized int size() {
+		return pending;
+	}
+
+	/**
+	 * Helper function that puts a host where it belongs: with the ready hosts,
+	 * with the delayed hosts, or nowhere if it has no pages or too many requests
+	 * in progress. Call only while holding the lock.
+	 *
+	 * @param host the host
+	 * @param now  the current time in milliseconds
+	 */
+	private void place(Host host, long now) {
+		if (host.urls.isEmpty() || host.active >= maxPerHost) {
+			host.placed = false;
+		} else if (host.next <= now) {
+			ready.addLast(host);
+			host.placed = true;
+		} else {
+			delayed.add(host);
+			host.placed = true;
+		}
+	}
+
+	/**
+	 * Helper function that passes a page from every ready host to the work
+	 * queue, taking turns, until no host is ready. Call only while holding the
+	 * lock.
+	 */
+	private void dispatch() {
+		long now = System.currentTimeMillis();
+		while (!delayed.isEmpty() && delayed.peek().next <= now) {
+			ready.addLast(delayed.poll());
+		}
+
+		while (!ready.isEmpty()) {
+			Host host = ready.pollFirst();
+			URL url = host.urls.pollFirst();
+			host.active++;
+			host.next = now + delay;
+			queue.execute(new Visit(host, url));
+			place(host, now);
+		}
+
+		if (!delayed.isEmpty() && delayed.peek().next < wakeup) {
+			wakeup = delayed.peek().next;
+			timer.schedule(this::wake, wakeup - now, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Helper function run by the timer when a delayed host may be ready
+	 */
+	private synchronized void wake() {
+		wakeup = Long.MAX_VALUE;
+		dispatch();
+	}
+
+	/**
+	 * Helper function that marks a page as visited
+	 *
+	 * @param host the host of the page
+	 */
+	private synchronized void visited(Host host) {
+		host.active--;
+		if (!host.placed) {
+			place(host, System.currentTimeMillis());
+		}
+		pending--;
+		if (pending == 0) {
+			this.notifyAll();
+		}
+		dispatch();
+	}
+
+	/**
+	 * The pages waiting for a single host
+	 */
+	private static class Host {
+		/** the pages waiting to be visited */
+		private final ArrayDeque<URL> urls;
+
+		/** the number of requests in progress */
+		private int active;
+
+		/** the earliest time the next request can start, in milliseconds */
+		private long next;
+
+		/** {@code true} if the host is with the ready or delayed hosts */
+		private boolean placed;
+
+		/**
+		 * constructor for host
+		 */
+		public Host() {
+			this.urls = new ArrayDeque<>();
+			this.active = 0;
+			this.next = 0;
+			this.placed = false;
+		}
+	}
+
+	/**
+	 * Visits a single page on the work queue
+	 */
+	private class Visit implements Runnable {
+		/** the host of the page */
+		private final Host host;
+
+		/** the page */
+		private final URL url;
+
+		/**
+		 * constructor for visit
+		 *
+		 * @param host the host of the page
+		 * @param url  the page
+		 */
+		public Visit(Host host, URL url) {
+			this.host = host;
+			this.url = url;
+		}
+
+		@Override
+		public void run() {
+			try {
+				visitor.accept(url);
+			} finally {
+				visited(host);
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every location (file path or URL) a dense integer id the first time
+ * it is seen, so the index can store and compare small ids instead of repeating
+ * the full location string in every posting. Ids start at 0 and are never
+ * reused.
+ *
+ * This class is thread-safe. Looking up a location by id is a lock-free array
+ * read, and only assigning a new id is synchronized.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class DocumentTable {
+
+	/** The initial capacity of the locations array. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** maps a location to its id */
+	private final ConcurrentHashMap<String, Integer> ids;
+
+	/** maps an id to its location */
+	private volatile String[] locations;
+
+	/** the number of ids assigned */
+	private volatile int size;
+
+	/** orders ids by their location */
+	private final Comparator<Integer> comparator;
+
+	/**
+	 * Constructor for an empty document table
+	 */
+	public DocumentTable() {
+		this.ids = new ConcurrentHashMap<>();
+		this.locations = new String[INITIAL_CAPACITY];
+		this.size = 0;
+		this.comparator = (first, second) -> get(first).compareTo(get(second));
+	}
+
+	/**
+	 * gets the id for a location, assigning a new id if the location is new
+	 *
+	 * @param location the location
+	 * @return the id of the location
+	 */
+	public int add(String location) {
+		Integer id = ids.get(location);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(location);
+			if (id != null) {
+				return id;
+			}
+			if (size == locations.length) {
+				locations = Arrays.copyOf(locations, locations.length * 2);
+			}
+			int next = size;
+			locations[next] = location;
+			size = next + 1;
+			ids.put(location, next);
+			return next;
+		}
+	}
+
+	/**
+	 * gets the id for a location
+	 *
+	 * @param location the location
+	 * @return the id of the location, or -1 if it has not been seen
+	 */
+	public int get(String location) {
+		Integer id = ids.get(location);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * gets the location for an id
+	 *
+	 * @param id the id
+	 * @return the location with that id
+	 * @throws IndexOutOfBoundsException if the id has not been assigned
+	 */
+	public String get(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException(id);
+		}
+		return locations[id];
+	}
+
+	/**
+	 * contains method for a location
+	 *
+	 * @param location the location
+	 * @return {@code true} if the location has an id
+	 */
+	public boolean contains(String location) {
+		return ids.containsKey(location);
+	}
+
+	/**
+	 * gets the number of ids assigned
+	 *
+	 * @return the number of locations in the table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * gets a comparator that orders ids the same way their locations are ordered
+	 *
+	 * @return a comparator for ids
+	 */
+	public Comparator<Integer> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(locations, size));
+	}
+}
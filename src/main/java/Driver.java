@@ -1,6 +1,7 @@
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
@@ -31,42 +32,165 @@ public class Driver {
 		flagValuePairs.parse(args);
 
 		ThreadSafeInvertedIndex threadSafeIndex = null;
+		SearchServer server = null;
 		InvertedIndex myInvertedIndex;
 		WorkQueue workqueue;
 		SearchResultsInterface results;
 
-		if (flagValuePairs.hasFlag("-threads")||flagValuePairs.hasFlag("-html")) {
+		// keeps only the best results of each query
+		int limit = Integer.MAX_VALUE;
+		if (flagValuePairs.hasFlag("-limit")) {
+			limit = Math.max(flagValuePairs.getInteger("-limit", 10), 0);
+		}
+
+		// an incremental update removes the old positions of changed files, which
+		// these indexes cannot do
+		if (flagValuePairs.hasFlag("-incremental") && (flagValuePairs.hasFlag("-snapshot")
+				|| flagValuePairs.hasFlag("-segments") || flagValuePairs.hasFlag("-mapped"))) {
+			System.out.println("The -incremental flag cannot be used with -snapshot, -segments or -mapped.");
+			return;
+		}
+
+		// the async crawler has its own in-flight limit and fetches whole pages over
+		// its own client, so it has no frontier, checkpoint, streaming or pool
+		if (flagValuePairs.hasFlag("-async") && (flagValuePairs.hasFlag("-delay") || flagValuePairs.hasFlag("-perhost")
+				|| flagValuePairs.hasFlag("-checkpoint") || flagValuePairs.hasFlag("-stream")
+				|| flagValuePairs.hasFlag("-keepalive"))) {
+			System.out.println(
+					"The -async flag cannot be used with -delay, -perhost, -checkpoint, -stream or -keepalive.");
+			return;
+		}
+
+		// maps a previously saved binary index instead of building one
+		MappedIndex mappedIndex = null;
+		if (flagValuePairs.hasFlag("-mapped")) {
+			// a mapped index is read-only, so nothing can be added to it
+			if (flagValuePairs.hasFlag("-load") || flagValuePairs.hasFlag("-text") || flagValuePairs.hasFlag("-html")) {
+				System.out.println("The -mapped flag cannot be used with -load, -text or -html.");
+				return;
+			}
+			Path mappedPath = flagValuePairs.getPath("-mapped", Path.of("index.bin"));
+			try {
+				mappedIndex = new MappedIndex(mappedPath);
+			} catch (IOException e) {
+				System.out.println("IO Exception while mapping index from " + mappedPath.toString());
+				return;
+			}
+		}
+
+		if (flagValuePairs.hasFlag("-threads")||flagValuePairs.hasFlag("-html")||flagValuePairs.hasFlag("-virtual")) {
 			// threads
-			int threads = flagValuePairs.getInteger("-threads", 5);
-			if (threads <= 0) {
-				threads = 1;
+			workqueue = workQueue(flagValuePairs);
+			if (mappedIndex != null) {
+				threadSafeIndex = mappedIndex;
+			} else {
+				threadSafeIndex = threadSafeIndex(flagValuePairs);
 			}
-			workqueue = new WorkQueue(threads);
-			threadSafeIndex = new ThreadSafeInvertedIndex();
 			myInvertedIndex = threadSafeIndex;
+			// serves searches while the index is still being built
+			if (threadSafeIndex instanceof SnapshotInvertedIndex && flagValuePairs.hasFlag("-server")) {
+				server = serve(flagValuePairs, threadSafeIndex, limit);
+			}
 			// the results of the search, but thread safe
-			results = new ThreadSafeSearchResults(threadSafeIndex, workqueue);
+			results = new ThreadSafeSearchResults(threadSafeIndex, workqueue, limit, cache(flagValuePairs, threadSafeIndex));
 			//test if it has a seed
 			if(flagValuePairs.hasFlag("-html")) {
+				// keeps connections open between pages on the same host
+				ConnectionPool pool = null;
+				if (flagValuePairs.hasFlag("-keepalive")) {
+					pool = new ConnectionPool(
+							flagValuePairs.getInteger("-keepalive", ConnectionPool.DEFAULT_CONNECTIONS),
+							flagValuePairs.getInteger("-idle", (int) (ConnectionPool.DEFAULT_IDLE_TIMEOUT / 1000)) * 1000L);
+				}
+				// skips pages whose text was already indexed under another url
+				DuplicateDetector duplicates = null;
+				if (flagValuePairs.hasFlag("-dedup")) {
+					duplicates = new DuplicateDetector(
+							flagValuePairs.getInteger("-dedup", DuplicateDetector.DEFAULT_DISTANCE));
+				}
 				try {
-					WebCrawler crawler = new WebCrawler(flagValuePairs.getInteger("-max", 1));
-					crawler.crawl(new URL(flagValuePairs.getString("-html")), workqueue, myInvertedIndex);
+					URL seed = new URL(flagValuePairs.getString("-html"));
+					if (flagValuePairs.hasFlag("-async")) {
+						// keeps many requests in flight without a thread for each
+						AsyncWebCrawler crawler = new AsyncWebCrawler(flagValuePairs.getInteger("-max", 1),
+								flagValuePairs.getInteger("-async", AsyncWebCrawler.DEFAULT_REQUESTS), duplicates);
+						crawler.crawl(seed, workqueue, myInvertedIndex);
+					} else {
+						// waits between requests to the same host, taking turns between hosts
+						CrawlFrontier frontier = null;
+						if (flagValuePairs.hasFlag("-delay") || flagValuePairs.hasFlag("-perhost")) {
+							frontier = new CrawlFrontier(
+									flagValuePairs.getInteger("-delay", (int) CrawlFrontier.DEFAULT_DELAY),
+									flagValuePairs.getInteger("-perhost", CrawlFrontier.DEFAULT_PER_HOST));
+						}
+						// saves the progress of the crawl so it can be resumed
+						CrawlCheckpoint checkpoint = null;
+						if (flagValuePairs.hasFlag("-checkpoint")) {
+							checkpoint = new CrawlCheckpoint(flagValuePairs.getPath("-checkpoint", Path.of("checkpoint")),
+									flagValuePairs.getInteger("-every", (int) (CrawlCheckpoint.DEFAULT_INTERVAL / 1000)) * 1000L);
+						}
+						// streams every page into the index instead of fetching it whole first
+						long maxPage = 0;
+						if (flagValuePairs.hasFlag("-stream")) {
+							maxPage = flagValuePairs.getInteger("-stream", (int) HtmlFetcher.DEFAULT_MAX_PAGE);
+						}
+						WebCrawler crawler = new WebCrawler(flagValuePairs.getInteger("-max", 1), pool, frontier, checkpoint,
+								maxPage, duplicates);
+						if (checkpoint != null && flagValuePairs.hasFlag("-resume") && checkpoint.exists()) {
+							crawler.resume(workqueue, myInvertedIndex);
+						} else {
+							crawler.crawl(seed, workqueue, myInvertedIndex);
+						}
+					}
 				} catch (MalformedURLException e) {
 					System.out.println("Malformed URL at: "+flagValuePairs.getString("-html"));
 				} catch (IOException e) {
 					System.out.println("IO excpetion for seed url: "+flagValuePairs.getString("-html"));
+				} finally {
+					if (pool != null) {
+						pool.close();
+					}
 				}
 			}
 
 		} else {
 			// the inverted index data structure that we will store all of the data in
-			myInvertedIndex = new InvertedIndex();
+			myInvertedIndex = mappedIndex != null ? mappedIndex : new InvertedIndex();
 			// the results of the search
-			results = new SearchResults(myInvertedIndex);
+			results = new SearchResults(myInvertedIndex, limit, cache(flagValuePairs, myInvertedIndex));
 			// only a single thread working
 			workqueue = null;
 		}
 
+		// only stems the files that changed since the manifest was saved, which
+		// describes the index given to -load
+		FileManifest manifest = null;
+		Path manifestPath = null;
+		if (flagValuePairs.hasFlag("-incremental")) {
+			manifestPath = flagValuePairs.getPath("-incremental", Path.of("manifest.bin"));
+			manifest = new FileManifest();
+			if (flagValuePairs.hasFlag("-load") && Files.isRegularFile(manifestPath)) {
+				try {
+					manifest.load(manifestPath);
+				} catch (IOException e) {
+					System.out.println("IO Exception while loading manifest from " + manifestPath.toString());
+					manifest = null;
+				}
+			}
+		}
+
+		// loads a previously saved binary index
+		if (flagValuePairs.hasFlag("-load")) {
+			Path loadPath = flagValuePairs.getPath("-load", Path.of("index.bin"));
+			try {
+				myInvertedIndex.binaryReader(loadPath);
+			} catch (IOException e) {
+				System.out.println("IO Exception while loading index from " + loadPath.toString());
+				// the manifest no longer matches the index
+				manifest = null;
+			}
+		}
+
 		// the input file into the inverted index
 		if (flagValuePairs.hasFlag("-text")) {
 			Path inputPath = flagValuePairs.getPath("-text");
@@ -74,13 +198,20 @@ public class Driver {
 				System.out.println("The input file was null");
 			} else {
 				try {
-					if (threadSafeIndex != null && workqueue != null) {
-						ThreadedInvertedIndexCreator.createInvertedIndex(inputPath, threadSafeIndex, workqueue);
+					if (manifest != null && threadSafeIndex != null && workqueue != null) {
+						ThreadedInvertedIndexCreator.updateInvertedIndex(inputPath, threadSafeIndex, workqueue, manifest);
+					} else if (manifest != null) {
+						InvertedIndexCreator.updateInvertedIndex(inputPath, myInvertedIndex, manifest);
+					} else if (threadSafeIndex != null && workqueue != null) {
+						ThreadedInvertedIndexCreator.createInvertedIndex(inputPath, threadSafeIndex, workqueue,
+								flagValuePairs.hasFlag("-reduce"));
 					} else {
 						InvertedIndexCreator.createInvertedIndex(inputPath, myInvertedIndex);
 					}
 				} catch (Exception e) {
 					System.out.println("IO Exception while reading path: " + inputPath.toString());
+					// the manifest no longer matches the index
+					manifest = null;
 				}
 			}
 		}
@@ -95,6 +226,24 @@ public class Driver {
 			}
 		}
 
+		// saves the inverted index in the binary format
+		if (flagValuePairs.hasFlag("-save")) {
+			Path savePath = flagValuePairs.getPath("-save", Path.of("index.bin"));
+			try {
+				myInvertedIndex.binaryWriter(savePath);
+				// saved only with the index it describes
+				if (manifest != null) {
+					try {
+						manifest.save(manifestPath);
+					} catch (IOException e) {
+						System.out.println("IO Exception while saving manifest to " + manifestPath.toString());
+					}
+				}
+			} catch (IOException e) {
+				System.out.println("IO Exception while saving index to " + savePath.toString());
+			}
+		}
+
 		// puts together the results
 		if (flagValuePairs.hasFlag("-query")) {
 			Path queryPath = flagValuePairs.getPath("-query");
@@ -137,6 +286,171 @@ public class Driver {
 		Duration elapsed = Duration.between(start, Instant.now());
 		double seconds = (double) elapsed.toMillis() / Duration.ofSeconds(1).toMillis();
 		System.out.printf("Elapsed: %f seconds%n", seconds);
+
+		// serves searches of the index over http until stopped
+		if (flagValuePairs.hasFlag("-server")) {
+			if (server == null) {
+				server = serve(flagValuePairs, myInvertedIndex, limit);
+			}
+			if (server != null) {
+				try {
+					server.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					server.stop();
+				}
+			}
+		}
+	}
+
+	/**
+	 * starts serving searches of the index over http
+	 *
+	 * @param flagValuePairs the parsed command-line arguments
+	 * @param index          the index to serve
+	 * @param limit          the most results kept for each query
+	 * @return the started server, or null if unable to start it
+	 */
+	private static SearchServer serve(ArgumentMap flagValuePairs, InvertedIndex index, int limit) {
+		int port = flagValuePairs.getInteger("-server", SearchServer.DEFAULT_PORT);
+		int capacity = flagValuePairs.hasFlag("-cache")
+				? flagValuePairs.getInteger("-cache", QueryCache.DEFAULT_CAPACITY)
+				: 0;
+		IndexHolder holder = new IndexHolder(index, capacity, loader(flagValuePairs));
+		SearchServer server = new SearchServer(port,
+				flagValuePairs.getInteger("-serverthreads", SearchServer.DEFAULT_THREADS), holder, limit);
+		try {
+			server.start();
+			System.out.println("Serving searches on port " + server.getPort());
+			return server;
+		} catch (IOException e) {
+			System.out.println("Unable to start the search server on port " + port);
+			server.stop();
+			return null;
+		}
+	}
+
+	/**
+	 * creates the work queue used to build the index
+	 *
+	 * @param flagValuePairs the parsed command-line arguments
+	 * @return the work queue
+	 */
+	private static WorkQueue workQueue(ArgumentMap flagValuePairs) {
+		if (flagValuePairs.hasFlag("-virtual")) {
+			// a virtual thread for every task instead of a pool of workers
+			int maxRunning = flagValuePairs.getInteger("-virtual", WorkQueue.DEFAULT_VIRTUAL);
+			WorkQueue workqueue = WorkQueue.virtual(maxRunning);
+			if (!workqueue.isVirtual() && maxRunning > WorkQueue.MAX_PLATFORM) {
+				// every task gets a platform thread instead, so fewer run at once
+				System.out.println("Virtual threads are not available in this version of Java, so at most "
+						+ WorkQueue.MAX_PLATFORM + " platform threads are used.");
+				workqueue.shutdown();
+				workqueue = WorkQueue.virtual(WorkQueue.MAX_PLATFORM);
+			}
+			return workqueue;
+		}
+		int threads = flagValuePairs.getInteger("-threads", 5);
+		if (threads <= 0) {
+			threads = 1;
+		}
+		return new WorkQueue(threads);
+	}
+
+	/**
+	 * creates the empty thread safe index chosen by the -shards, -segments and
+	 * -snapshot flags
+	 *
+	 * @param flagValuePairs the parsed command-line arguments
+	 * @return the empty index
+	 */
+	private static ThreadSafeInvertedIndex threadSafeIndex(ArgumentMap flagValuePairs) {
+		if (flagValuePairs.hasFlag("-shards")) {
+			// splits the words into independently locked shards
+			int shards = flagValuePairs.getInteger("-shards", ShardedInvertedIndex.DEFAULT_SHARDS);
+			return new ShardedInvertedIndex(Math.max(shards, 1));
+		} else if (flagValuePairs.hasFlag("-segments")) {
+			// buffers new pages and seals them into segments merged in the background
+			int buffer = flagValuePairs.getInteger("-segments", SegmentedInvertedIndex.DEFAULT_BUFFER);
+			return new SegmentedInvertedIndex(Math.max(buffer, 1));
+		} else if (flagValuePairs.hasFlag("-snapshot")) {
+			// searches a consistent version without waiting for the pages being added
+			return new SnapshotInvertedIndex();
+		}
+		return new ThreadSafeInvertedIndex();
+	}
+
+	/**
+	 * creates the loader that rebuilds the served index the same way it was
+	 * first built, as the same type of index from the same -mapped, -load and
+	 * -text flags. A crawl or an incremental update cannot be repeated, so there
+	 * is no loader for an index built with -html or -incremental.
+	 *
+	 * @param flagValuePairs the parsed command-line arguments
+	 * @return the loader, or null if the index cannot be rebuilt
+	 */
+	private static IndexHolder.Loader loader(ArgumentMap flagValuePairs) {
+		if (flagValuePairs.hasFlag("-mapped")) {
+			Path mapped = flagValuePairs.getPath("-mapped", Path.of("index.bin"));
+			return () -> new MappedIndex(mapped);
+		}
+		if (flagValuePairs.hasFlag("-html") || flagValuePairs.hasFlag("-incremental")) {
+			return null;
+		}
+		Path load = flagValuePairs.hasFlag("-load") ? flagValuePairs.getPath("-load", Path.of("index.bin")) : null;
+		Path text = flagValuePairs.getPath("-text");
+		if (load == null && text == null) {
+			return null;
+		}
+		if (!flagValuePairs.hasFlag("-threads") && !flagValuePairs.hasFlag("-virtual")) {
+			return () -> {
+				InvertedIndex index = new InvertedIndex();
+				if (load != null) {
+					index.binaryReader(load);
+				}
+				if (text != null) {
+					InvertedIndexCreator.createInvertedIndex(text, index);
+				}
+				return index;
+			};
+		}
+		boolean reduce = flagValuePairs.hasFlag("-reduce");
+		return () -> {
+			ThreadSafeInvertedIndex index = threadSafeIndex(flagValuePairs);
+			WorkQueue workqueue = workQueue(flagValuePairs);
+			try {
+				if (load != null) {
+					index.binaryReader(load);
+				}
+				if (text != null) {
+					ThreadedInvertedIndexCreator.createInvertedIndex(text, index, workqueue, reduce);
+				}
+				return index;
+			} catch (IOException e) {
+				// never published, so nothing else closes it
+				if (index instanceof SegmentedInvertedIndex) {
+					((SegmentedInvertedIndex) index).close();
+				}
+				throw e;
+			} finally {
+				workqueue.join();
+			}
+		};
+	}
+
+	/**
+	 * creates the query cache if the -cache flag was given
+	 *
+	 * @param flagValuePairs the parsed command-line arguments
+	 * @param index          the index the cache searches
+	 * @return the query cache, or null if not caching
+	 */
+	private static QueryCache cache(ArgumentMap flagValuePairs, InvertedIndex index) {
+		if (flagValuePairs.hasFlag("-cache")) {
+			return new QueryCache(index, flagValuePairs.getInteger("-cache", QueryCache.DEFAULT_CAPACITY));
+		}
+		return null;
 	}
 
 }
@@ -0,0 +1,276 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Finds crawled pages whose text was already indexed, so mirrors, session id
+ * variants and printer friendly copies of a page are only indexed once. Every
+ * page is reduced to two 64 bit fingerprints of its cleaned words:
+ *
+ * <pre>
+ * exact:   a hash of the words in order, equal only for the same text
+ * simhash: every bit is the majority vote of that bit of every word hash,
+ *          so similar texts have fingerprints that differ in few bits
+ * </pre>
+ *
+ * A page is a duplicate if its exact fingerprint was seen before, or if it has
+ * enough words and its simhash differs from one seen before in at most a max
+ * number of bits. The simhashes are split into 4 bands of 16 bits, and every
+ * simhash is stored in one bucket for each band. Two simhashes that differ in
+ * at most 3 bits must be equal in at least one band, so only the simhashes
+ * sharing a bucket need to be compared.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class DuplicateDetector {
+
+	/** The default max number of bits two near duplicates differ in. */
+	public static final int DEFAULT_DISTANCE = 3;
+
+	/** The number of words a page needs before it is checked for near duplicates. */
+	public static final int MIN_WORDS = 32;
+
+	/** The number of bands the simhashes are split into. */
+	private static final int BANDS = 4;
+
+	/** The number of bits in every band. */
+	private static final int BAND_BITS = 64 / BANDS;
+
+	/** The number of buckets for every band. */
+	private static final int BUCKETS = 1 << BAND_BITS;
+
+	/** the max number of bits two near duplicates differ in */
+	private final int distance;
+
+	/** the exact fingerprints of every page */
+	private final ConcurrentLongSet exact;
+
+	/** the simhashes in every bucket, by band and then band value */
+	private final long[][] buckets;
+
+	/** the number of simhashes in every bucket */
+	private final int[] sizes;
+
+	/** the number of duplicate pages found */
+	private final LongAdder duplicates;
+
+	/**
+	 * Constructor for duplicate detector
+	 *
+	 * @param distance the max number of bits two near duplicates differ in, from
+	 *                 0 to 3
+	 */
+	public DuplicateDetector(int distance) {
+		this.distance = Math.min(Math.max(distance, 0), BANDS - 1);
+		this.exact = new ConcurrentLongSet();
+		this.buckets = new long[BANDS * BUCKETS][];
+		this.sizes = new int[BANDS * BUCKETS];
+		this.duplicates = new LongAdder();
+	}
+
+	/**
+	 * Constructor for duplicate detector with the default distance
+	 */
+	public DuplicateDetector() {
+		this(DEFAULT_DISTANCE);
+	}
+
+	/**
+	 * Creates an empty fingerprint to pass the words of a page to
+	 *
+	 * @return the fingerprint
+	 */
+	public Fingerprint fingerprint() {
+		return new Fingerprint();
+	}
+
+	/**
+	 * Adds the fingerprint of a page, unless the page is a duplicate. Pages
+	 * without words are never duplicates.
+	 *
+	 * @param fingerprint the fingerprint of the page
+	 * @return {@code true} if the page is new and should be indexed
+	 */
+	public boolean add(Fingerprint fingerprint) {
+		if (fingerprint.words == 0) {
+			return true;
+		}
+		if (!exact.add(fingerprint.exact) || (fingerprint.words >= MIN_WORDS && !add(fingerprint.simhash()))) {
+			duplicates.increment();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of duplicate pages found
+	 *
+	 * @return the number of duplicates
+	 */
+	public long getDuplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * Writes every fingerprint added so far, so the detector can be restored after
+	 * a crawl is resumed. The caller must make sure no fingerprints are added
+	 * until this returns.
+	 *
+	 * <pre>
+	 * int count, then every exact fingerprint as a long,
+	 * int count, then every simhash as a long
+	 * </pre>
+	 *
+	 * @param output the output to write to
+	 * @throws IOException if unable to write
+	 */
+	public synchronized void write(DataOutputStream output) throws IOException {
+		output.writeInt(exact.size());
+		IOException[] error = new IOException[1];
+		exact.forEach(fingerprint -> {
+			try {
+				output.writeLong(fingerprint);
+			} catch (IOException e) {
+				error[0] = e;
+			}
+		});
+		if (error[0] != null) {
+			throw error[0];
+		}
+
+		// every simhash is in exactly one bucket of the first band
+		int count = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			count += sizes[bucket];
+		}
+		output.writeInt(count);
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			for (int i = 0; i < sizes[bucket]; i++) {
+				output.writeLong(buckets[bucket][i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads fingerprints written by {@link #write(DataOutputStream)} and adds them
+	 * to this detector
+	 *
+	 * @param input the input to read from
+	 * @throws IOException if unable to read
+	 */
+	public synchronized void read(DataInputStream input) throws IOException {
+		int count = input.readInt();
+		for (int i = 0; i < count; i++) {
+			exact.add(input.readLong());
+		}
+		count = input.readInt();
+		for (int i = 0; i < count; i++) {
+			add(input.readLong());
+		}
+	}
+
+	/**
+	 * Helper function that adds a simhash, unless one near it was added before
+	 *
+	 * @param simhash the simhash
+	 * @return {@code true} if no simhash near it was added before
+	 */
+	private synchronized boolean add(long simhash) {
+		for (int band = 0; band < BANDS; band++) {
+			int bucket = bucket(simhash, band);
+			long[] values = buckets[bucket];
+			for (int i = 0; i < sizes[bucket]; i++) {
+				if (Long.bitCount(values[i] ^ simhash) <= distance) {
+					return false;
+				}
+			}
+		}
+
+		for (int band = 0; band < BANDS; band++) {
+			int bucket = bucket(simhash, band);
+			if (buckets[bucket] == null) {
+				buckets[bucket] = new long[2];
+			} else if (sizes[bucket] == buckets[bucket].length) {
+				buckets[bucket] = Arrays.copyOf(buckets[bucket], sizes[bucket] * 2);
+			}
+			buckets[bucket][sizes[bucket]++] = simhash;
+		}
+		return true;
+	}
+
+	/**
+	 * Helper function that chooses the bucket of a simhash in a band
+	 *
+	 * @param simhash the simhash
+	 * @param band    the band
+	 * @return the bucket
+	 */
+	private static int bucket(long simhash, int band) {
+		return band * BUCKETS + (int) ((simhash >>> (band * BAND_BITS)) & (BUCKETS - 1));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d duplicate pages", getDuplicates());
+	}
+
+	/**
+	 * The fingerprints of a single page, built one word at a time
+	 *
+	 * Warning: This class is not thread-safe. Use one fingerprint per page.
+	 */
+	public static class Fingerprint implements Consumer<String> {
+		/** the hash of the words so far, in order */
+		private long exact;
+
+		/** the votes for every bit of the simhash */
+		private final int[] votes;
+
+		/** the number of words so far */
+		private int words;
+
+		/**
+		 * constructor for fingerprint
+		 */
+		public Fingerprint() {
+			this.exact = 0xcbf29ce484222325L;
+			this.votes = new int[64];
+			this.words = 0;
+		}
+
+		/**
+		 * adds the next word of the page
+		 *
+		 * @param word the cleaned word
+		 */
+		@Override
+		public void accept(String word) {
+			long hash = ConcurrentLongSet.fingerprint(word);
+			exact = (exact ^ hash) * 0x100000001b3L;
+			for (int bit = 0; bit < 64; bit++) {
+				votes[bit] += ((hash >>> bit) & 1) == 0 ? -1 : 1;
+			}
+			words++;
+		}
+
+		/**
+		 * gets the simhash of the words so far
+		 *
+		 * @return the simhash
+		 */
+		public long simhash() {
+			long simhash = 0;
+			for (int bit = 0; bit < 64; bit++) {
+				if (votes[bit] > 0) {
+					simhash |= 1L << bit;
+				}
+			}
+			return simhash;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records the size, last modified time and content hash of every file in an
+ * index, so the index can be updated by only stemming the files that were
+ * added or changed since, and dropping the ones that were removed. A file is
+ * unchanged if its size and modified time are the same. If only its modified
+ * time changed, its content is hashed, and it is still unchanged if the hash is
+ * the same. The manifest is saved in this binary format:
+ *
+ * <pre>
+ * int magic, int version, int count,
+ * then for every file: UTF location, long size, long modified, long hash
+ * </pre>
+ *
+ * A manifest only describes the index saved with it, so it should only be saved
+ * once that index is saved.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class FileManifest {
+
+	/** Marks the start of every manifest file. */
+	public static final int MAGIC = 0x4d414e49;
+
+	/** The version of the format written by this class. */
+	public static final int VERSION = 1;
+
+	/** The number of bytes read at a time while hashing. */
+	private static final int BUFFER = 8192;
+
+	/** the stamp of every file, by location */
+	private final TreeMap<String, Stamp> stamps;
+
+	/**
+	 * Constructor for an empty manifest
+	 */
+	public FileManifest() {
+		this.stamps = new TreeMap<>();
+	}
+
+	/**
+	 * Compares the files under an input path with the manifest, and records the
+	 * files that were added or changed and forgets the ones that were removed
+	 *
+	 * @param inputPath the file or directory being indexed
+	 * @return the changes found
+	 * @throws IOException if unable to read a file
+	 */
+	public Changes update(Path inputPath) throws IOException {
+		List<Path> files;
+		if (Files.isDirectory(inputPath)) {
+			files = DirectoryNavigator.findPaths(inputPath);
+		} else if (Files.isRegularFile(inputPath)) {
+			files = List.of(inputPath);
+		} else {
+			files = List.of();
+		}
+
+		Changes changes = new Changes();
+		Set<String> present = new HashSet<>();
+		for (Path file : files) {
+			String location = file.toString();
+			present.add(location);
+			long size = Files.size(file);
+			long modified = Files.getLastModifiedTime(file).toMillis();
+
+			Stamp old = stamps.get(location);
+			if (old != null && old.size == size && old.modified == modified) {
+				changes.unchanged++;
+				continue;
+			}
+
+			Stamp stamp = new Stamp(size, modified, hash(file));
+			stamps.put(location, stamp);
+			if (old != null && old.size == size && old.hash == stamp.hash) {
+				// only touched, so the positions in the index are still right
+				changes.unchanged++;
+			} else {
+				changes.changed.add(file);
+				changes.dropped.add(location);
+				if (old == null) {
+					changes.added++;
+				}
+			}
+		}
+
+		Iterator<String> iterator = stamps.keySet().iterator();
+		while (iterator.hasNext()) {
+			String location = iterator.next();
+			if (!present.contains(location) && Path.of(location).startsWith(inputPath)) {
+				iterator.remove();
+				changes.dropped.add(location);
+				changes.removed++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Gets the stamp of a file
+	 *
+	 * @param location the location of the file
+	 * @return the stamp, or null if the file is not in the manifest
+	 */
+	public Stamp get(String location) {
+		return stamps.get(location);
+	}
+
+	/**
+	 * Gets the number of files in the manifest
+	 *
+	 * @return the number of files
+	 */
+	public int size() {
+		return stamps.size();
+	}
+
+	/**
+	 * Saves the manifest, replacing the file in a single atomic move
+	 *
+	 * @param path the file to save to
+	 * @throws IOException if unable to write the file
+	 */
+	public void save(Path path) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(stamps.size());
+			for (Map.Entry<String, Stamp> entry : stamps.entrySet()) {
+				output.writeUTF(entry.getKey());
+				output.writeLong(entry.getValue().size);
+				output.writeLong(entry.getValue().modified);
+				output.writeLong(entry.getValue().hash);
+			}
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads a saved manifest, adding its files to this one
+	 *
+	 * @param path the file to load from
+	 * @throws IOException if unable to read the file or it is not a manifest
+	 */
+	public void load(Path path) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException("Not a file manifest: " + path);
+			}
+			int version = input.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported file manifest version " + version + ": " + path);
+			}
+			int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				String location = input.readUTF();
+				stamps.put(location, new Stamp(input.readLong(), input.readLong(), input.readLong()));
+			}
+		}
+	}
+
+	/**
+	 * Hashes the content of a file with 64 bit FNV-1a
+	 *
+	 * @param file the file
+	 * @return the hash
+	 * @throws IOException if unable to read the file
+	 */
+	public static long hash(Path file) throws IOException {
+		long hash = 0xcbf29ce484222325L;
+		byte[] buffer = new byte[BUFFER];
+		try (InputStream input = Files.newInputStream(file)) {
+			for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				for (int i = 0; i < read; i++) {
+					hash = (hash ^ (buffer[i] & 0xff)) * 0x100000001b3L;
+				}
+			}
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d files", size());
+	}
+
+	/**
+	 * The size, modified time and content hash of a single file
+	 */
+	public static class Stamp {
+		/** the size in bytes */
+		private final long size;
+
+		/** the last modified time in milliseconds */
+		private final long modified;
+
+		/** the hash of the content */
+		private final long hash;
+
+		/**
+		 * constructor for stamp
+		 *
+		 * @param size     the size in bytes
+		 * @param modified the last modified time in milliseconds
+		 * @param hash     the hash of the content
+		 */
+		public Stamp(long size, long modified, long hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+
+		/**
+		 * gets the size
+		 *
+		 * @return the size in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * gets the modified time
+		 *
+		 * @return the last modified time in milliseconds
+		 */
+		public long getModified() {
+			return modified;
+		}
+
+		/**
+		 * gets the hash
+		 *
+		 * @return the hash of the content
+		 */
+		public long getHash() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The files found to be added, changed or removed by an update
+	 */
+	public static class Changes {
+		/** the files to stem, which were added or changed */
+		private final List<Path> changed = new ArrayList<>();
+
+		/** the locations whose old positions must be dropped */
+		private final List<String> dropped = new ArrayList<>();
+
+		/** the number of files added */
+		private int added = 0;
+
+		/** the number of files removed */
+		private int removed = 0;
+
+		/** the number of files unchanged */
+		private int unchanged = 0;
+
+		/**
+		 * gets the files to stem
+		 *
+		 * @return the files that were added or changed
+		 */
+		public List<Path> getChanged() {
+			return Collections.unmodifiableList(changed);
+		}
+
+		/**
+		 * gets the locations to remove from the index before stemming
+		 *
+		 * @return the locations of the files that were changed or removed
+		 */
+		public List<String> getDropped() {
+			return Collections.unmodifiableList(dropped);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d added, %d changed, %d removed, %d unchanged", added, changed.size() - added,
+					removed, unchanged);
+		}
+	}
+}
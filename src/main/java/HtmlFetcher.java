@@ -1,7 +1,10 @@
-import java.io.BufferedReader;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -18,6 +21,12 @@ import java.util.regex.Pattern;
  * @version Spring 2021 - Project Version
  */
 public class HtmlFetcher {
+	/** The default max number of bytes read from a single page. */
+	public static final long DEFAULT_MAX_PAGE = 10_000_000;
+
+	/** The number of characters decoded at a time when streaming a page. */
+	private static final int BUFFER = 8192;
+
 	/**
 	 * Returns {@code true} if and only if there is a "Content-Type" header and the
 	 * first value of that header starts with the value "text/html"
@@ -94,10 +103,7 @@ public class HtmlFetcher {
 	 * @return the html or {@code null} if unable to fetch the resource or the
 	 *         resource is not html
 	 *
-	 * @see HttpsFetcher#openConnection(URL)
-	 * @see HttpsFetcher#printGetRequest(PrintWriter, URL)
-	 * @see HttpsFetcher#getHeaderFields(BufferedReader)
-	 * @see HttpsFetcher#getContent(BufferedReader)
+	 * @see ConnectionPool#fetchOnce(URL)
 	 *
 	 * @see String#join(CharSequence, CharSequence...)
 	 *
@@ -105,14 +111,33 @@ public class HtmlFetcher {
 	 * @see #isRedirect(Map)
 	 */
 	public static String fetch(URL url, int redirects) {
+		return fetch(url, redirects, null);
+	}
+
+	/**
+	 * See {@link #fetch(URL, int)} for details, but reuses open connections from
+	 * the pool when possible.
+	 *
+	 * @param url       the url to fetch
+	 * @param redirects the number of times to follow redirects
+	 * @param pool      the pool of open connections, or null to use a new
+	 *                  connection for every request
+	 * @return the html or {@code null} if unable to fetch the resource or the
+	 *         resource is not html
+	 *
+	 * @see #fetch(URL, int)
+	 * @see ConnectionPool#fetch(URL)
+	 * @see ConnectionPool#fetchOnce(URL)
+	 */
+	public static String fetch(URL url, int redirects, ConnectionPool pool) {
 		try {
-			Map<String, List<String>> results = HttpsFetcher.fetchURL(url);
+			Map<String, List<String>> results = pool == null ? ConnectionPool.fetchOnce(url) : pool.fetch(url);
 			if (isHtml(results) && getStatusCode(results) == 200) {
 				return String.join("\n", results.get("Content"));
 			}
 			if (isRedirect(results) && redirects > 0) {
 				URL newRedirect = new URL(String.join("", results.get("Location")));
-				return fetch(newRedirect, redirects - 1);
+				return fetch(newRedirect, redirects - 1, pool);
 			}
 
 		} catch (Exception e) {
@@ -121,6 +146,102 @@ public class HtmlFetcher {
 		return null;
 	}
 
+	/**
+	 * See {@link #fetch(URL, int, ConnectionPool)} for details, but passes the
+	 * html to the scanner while it arrives instead of returning it as a single
+	 * string, so a page never has to be in memory as a whole. Only the first max
+	 * number of bytes of a page are read. The scanner is not finished, and may
+	 * have seen part of the page even if unable to fetch the rest of it.
+	 *
+	 * @param url       the url to fetch
+	 * @param redirects the number of times to follow redirects
+	 * @param pool      the pool of open connections, or null to use a new
+	 *                  connection for every request
+	 * @param maxBytes  the max number of bytes read from the page
+	 * @param scanner   the scanner the html is passed to
+	 * @return {@code true} if the whole html was passed to the scanner,
+	 *         {@code false} if unable to fetch the resource or the resource is
+	 *         not html
+	 *
+	 * @see #fetch(URL, int, ConnectionPool)
+	 * @see ConnectionPool#stream(URL, ConnectionPool.BodyReader)
+	 */
+	public static boolean stream(URL url, int redirects, ConnectionPool pool, long maxBytes, HtmlScanner scanner) {
+		try {
+			boolean[] html = new boolean[1];
+			URL[] redirect = new URL[1];
+			ConnectionPool.BodyReader reader = (headers, body) -> {
+				if (isHtml(headers) && getStatusCode(headers) == 200) {
+					scan(body, maxBytes, scanner);
+					html[0] = true;
+				} else if (isRedirect(headers) && redirects > 0) {
+					redirect[0] = new URL(String.join("", headers.get("Location")));
+				}
+			};
+
+			if (pool == null) {
+				ConnectionPool.streamOnce(url, reader);
+			} else {
+				pool.stream(url, reader);
+			}
+
+			if (redirect[0] != null) {
+				return stream(redirect[0], redirects - 1, pool, maxBytes, scanner);
+			}
+			return html[0];
+		} catch (Exception e) {
+			System.out.println("Error fetching URL: "+url.toString());
+		}
+		return false;
+	}
+
+	/**
+	 * Helper function that decodes a body as UTF-8 and passes it to the scanner
+	 * a buffer at a time
+	 *
+	 * @param body     the body
+	 * @param maxBytes the max number of bytes read from the body
+	 * @param scanner  the scanner
+	 * @throws IOException if unable to read the body
+	 */
+	private static void scan(InputStream body, long maxBytes, HtmlScanner scanner) throws IOException {
+		InputStream limited = new InputStream() {
+			/** the number of bytes left */
+			private long remaining = maxBytes;
+
+			@Override
+			public int read() throws IOException {
+				if (remaining <= 0) {
+					return -1;
+				}
+				remaining--;
+				return body.read();
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) throws IOException {
+				if (length == 0) {
+					return 0;
+				}
+				if (remaining <= 0) {
+					return -1;
+				}
+				int read = body.read(bytes, offset, (int) Math.min(length, remaining));
+				if (read > 0) {
+					remaining -= read;
+				}
+				return read;
+			}
+		};
+
+		Reader reader = new InputStreamReader(limited, StandardCharsets.UTF_8);
+		char[] buffer = new char[BUFFER];
+		int read;
+		while ((read = reader.read(buffer)) >= 0) {
+			scanner.scan(buffer, 0, read);
+		}
+	}
+
 	/**
 	 * Converts the {@link String} url into a {@link URL} object and then calls
 	 * {@link #fetch(URL, int)}.
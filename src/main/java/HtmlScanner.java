@@ -0,0 +1,541 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.commons.text.translate.EntityArrays;
+
+/**
+ * Cleans HTML into plain text and finds the links of its anchor tags in a
+ * single pass, instead of the many regular expression passes of
+ * {@link HtmlCleaner} and {@link LinkParser}. The HTML can be given all at
+ * once or in pieces as it arrives, and the text is passed on in pieces that
+ * end in whitespace, so no piece ever splits a word or an entity.
+ *
+ * For valid HTML, the text is the same as {@link HtmlCleaner#stripHtml(String)}
+ * and the links are the same as {@link LinkParser#getValidLinks(java.net.URL,
+ * String)} would find after {@link HtmlCleaner#stripBlockElements(String)}.
+ * Comments and the head, style, script, noscript, iframe and svg elements are
+ * removed along with their contents, every other tag is removed, and entities
+ * are converted or removed.
+ *
+ * A comment, element or tag that is never closed is handled the way the
+ * regular expressions handle it once the end of the HTML is reached, so only
+ * the part that has not been closed yet is kept in memory.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class HtmlScanner {
+
+	/** The elements removed along with their contents, in the order they are checked. */
+	private static final String[] BLOCKS = { "head", "style", "script", "noscript", "iframe", "svg" };
+
+	/** The HTML 4 entities, with their ampersand and semicolon, mapped to their characters. */
+	private static final Map<String, String> ENTITIES = new HashMap<>();
+
+	/** The length of the longest entity. */
+	private static final int LONGEST;
+
+	static {
+		// the same entities as StringEscapeUtils#unescapeHtml4
+		int longest = 0;
+		for (Map<CharSequence, CharSequence> map : List.of(EntityArrays.BASIC_UNESCAPE,
+				EntityArrays.ISO8859_1_UNESCAPE, EntityArrays.HTML40_EXTENDED_UNESCAPE)) {
+			for (Map.Entry<CharSequence, CharSequence> entry : map.entrySet()) {
+				ENTITIES.put(entry.getKey().toString(), entry.getValue().toString());
+				longest = Math.max(longest, entry.getKey().length());
+			}
+		}
+		LONGEST = longest;
+	}
+
+	/** The number of characters of text gathered before passing them on. */
+	private static final int FLUSH = 8192;
+
+	/** Scanning text. */
+	private static final int TEXT = 0;
+
+	/** Inside a tag, waiting for the closing bracket. */
+	private static final int TAG = 1;
+
+	/** Inside a comment, waiting for the closing dashes. */
+	private static final int COMMENT = 2;
+
+	/** Inside one of the removed elements, waiting for its closing tag. */
+	private static final int BLOCK = 3;
+
+	/** receives the text, in pieces that end in whitespace */
+	private final Consumer<String> text;
+
+	/** receives the href of every anchor tag */
+	private final Consumer<String> links;
+
+	/** the text not passed on yet */
+	private final StringBuilder buffer;
+
+	/** the comment, element or tag not closed yet, starting at its bracket */
+	private final StringBuilder pending;
+
+	/** what is being scanned */
+	private int state;
+
+	/** the removed element being scanned, or null */
+	private String block;
+
+	/** how much of the closing tag of the element has been seen */
+	private int closing;
+
+	/** the start of the comment inside the element, or -1 if not in one */
+	private int comment;
+
+	/** {@code true} if the next bracket can only start an ordinary tag */
+	private boolean plain;
+
+	/**
+	 * Constructor for html scanner
+	 *
+	 * @param text  receives the text, in pieces that end in whitespace
+	 * @param links receives the href of every anchor tag
+	 */
+	public HtmlScanner(Consumer<String> text, Consumer<String> links) {
+		this.text = text;
+		this.links = links;
+		this.buffer = new StringBuilder();
+		this.pending = new StringBuilder();
+		this.state = TEXT;
+		this.block = null;
+		this.closing = 0;
+		this.comment = -1;
+		this.plain = false;
+	}
+
+	/**
+	 * Scans the next piece of HTML
+	 *
+	 * @param html the next piece
+	 */
+	public void scan(CharSequence html) {
+		for (int i = 0; i < html.length(); i++) {
+			scan(html.charAt(i));
+		}
+	}
+
+	/**
+	 * Scans the next piece of HTML
+	 *
+	 * @param html   the characters
+	 * @param offset the start of the piece
+	 * @param length the length of the piece
+	 */
+	public void scan(char[] html, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			scan(html[i]);
+		}
+	}
+
+	/**
+	 * Ends the HTML, handling anything left open and passing on the rest of the
+	 * text. The scanner can be used for new HTML afterwards.
+	 */
+	public void finish() {
+		while (state != TEXT) {
+			// scan again as if this was never going to be closed
+			String rest = pending.toString();
+			boolean tag = state == TAG;
+			pending.setLength(0);
+			state = TEXT;
+			block = null;
+			comment = -1;
+			plain = false;
+
+			if (tag) {
+				// a bracket without an end is just text
+				buffer.append('<');
+			} else {
+				// a comment or element without an end is just a tag
+				plain = true;
+				scan('<');
+			}
+			scan(rest.substring(1));
+		}
+		flush();
+	}
+
+	/**
+	 * Helper function that scans a single character
+	 *
+	 * @param c the character
+	 */
+	private void scan(char c) {
+		switch (state) {
+			case TEXT:
+				if (c == '<') {
+					pending.append(c);
+					state = TAG;
+				} else {
+					buffer.append(c);
+					if (buffer.length() >= FLUSH && isSpace(c)) {
+						flush();
+					}
+				}
+				break;
+
+			case TAG:
+				pending.append(c);
+				if (!plain && start()) {
+					break;
+				}
+				if (c == '>') {
+					tag();
+				}
+				break;
+
+			case COMMENT:
+				pending.append(c);
+				if (c == '>' && pending.length() >= 7 && endsWith(pending, "-->")) {
+					pending.setLength(0);
+					state = TEXT;
+				}
+				break;
+
+			case BLOCK:
+				pending.append(c);
+				close(c);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Helper function that checks if the tag being scanned starts a comment or
+	 * one of the removed elements. The name of an element must be followed by
+	 * whitespace, a slash or a bracket, so a header tag does not start a head
+	 * element.
+	 *
+	 * @return {@code true} if a comment or element was started
+	 */
+	private boolean start() {
+		int length = pending.length();
+		if (length == 4 && endsWith(pending, "<!--")) {
+			state = COMMENT;
+			return true;
+		}
+		char last = pending.charAt(length - 1);
+		if (!isSpace(last) && last != '/' && last != '>') {
+			return false;
+		}
+		for (String name : BLOCKS) {
+			if (length == name.length() + 2 && matches(pending, 1, name)) {
+				state = BLOCK;
+				block = name;
+				closing = 0;
+				comment = -1;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Helper function that handles a complete tag, passing on its link if it is
+	 * an anchor tag
+	 */
+	private void tag() {
+		String href = href(pending);
+		if (href != null) {
+			links.accept(href);
+		}
+		pending.setLength(0);
+		state = TEXT;
+		plain = false;
+	}
+
+	/**
+	 * Helper function that looks for the closing tag of the removed element,
+	 * skipping any comments inside of it
+	 *
+	 * @param c the character just added
+	 */
+	private void close(char c) {
+		int length = pending.length();
+		if (comment >= 0) {
+			if (c == '>' && length - comment >= 7 && endsWith(pending, "-->")) {
+				comment = -1;
+			}
+			return;
+		}
+		if (c == '-' && endsWith(pending, "<!--")) {
+			comment = length - 4;
+			closing = 0;
+			return;
+		}
+
+		// closing counts the slash, then the letters of the name
+		if (closing > block.length()) {
+			if (c == '>') {
+				pending.setLength(0);
+				state = TEXT;
+				block = null;
+				return;
+			}
+			if (isSpace(c)) {
+				return;
+			}
+		} else if (closing > 0 && lower(c) == block.charAt(closing - 1)) {
+			closing++;
+			return;
+		}
+		closing = c == '/' ? 1 : 0;
+	}
+
+	/**
+	 * Helper function that passes on the text gathered so far, converting or
+	 * removing its entities
+	 */
+	private void flush() {
+		if (buffer.length() > 0) {
+			String piece = buffer.toString();
+			buffer.setLength(0);
+			text.accept(piece.indexOf('&') < 0 ? piece : stripEntities(piece));
+		}
+	}
+
+	/**
+	 * Converts or removes the entities of some text, giving the same result as
+	 * {@link HtmlCleaner#stripEntities(String)} without a regular expression.
+	 * Known entities are converted first, then anything left that looks like an
+	 * entity is removed.
+	 *
+	 * @param text the text
+	 * @return the text with its entities converted or removed
+	 */
+	public static String stripEntities(String text) {
+		int length = text.length();
+		StringBuilder converted = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			int end = -1;
+			if (c == '&' && i + 1 < length && text.charAt(i + 1) == '#') {
+				end = numeric(text, i, converted);
+			} else if (c == '&') {
+				end = named(text, i, converted);
+			}
+			if (end < 0) {
+				converted.append(c);
+			} else {
+				i = end;
+			}
+		}
+
+		// removes what the pattern &\\S+; matches, up to the last semicolon before whitespace
+		length = converted.length();
+		StringBuilder stripped = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			char c = converted.charAt(i);
+			if (c != '&') {
+				stripped.append(c);
+				continue;
+			}
+			int last = -1;
+			int j = i + 1;
+			for (; j < length && !isSpace(converted.charAt(j)); j++) {
+				if (converted.charAt(j) == ';' && j >= i + 2) {
+					last = j;
+				}
+			}
+			// nothing after the last semicolon of the run can match again
+			stripped.append(converted, last >= 0 ? last + 1 : i, j);
+			i = j - 1;
+		}
+		return stripped.toString();
+	}
+
+	/**
+	 * Helper function that converts a numeric entity like {@code &#38;} or
+	 * {@code &#x26;}
+	 *
+	 * @param text      the text
+	 * @param start     the ampersand
+	 * @param converted the converted text to append to
+	 * @return the semicolon of the entity, or -1 if it is not one
+	 */
+	private static int numeric(String text, int start, StringBuilder converted) {
+		int i = start + 2;
+		boolean hex = i < text.length() && (text.charAt(i) == 'x' || text.charAt(i) == 'X');
+		if (hex) {
+			i++;
+		}
+		int end = i;
+		long value = 0;
+		while (end < text.length() && isDigit(text.charAt(end))) {
+			int digit = Character.digit(text.charAt(end), hex ? 16 : 10);
+			if (digit < 0) {
+				return -1;
+			}
+			value = Math.min(value * (hex ? 16 : 10) + digit, Integer.MAX_VALUE);
+			end++;
+		}
+		if (end == i || end == text.length() || text.charAt(end) != ';' || value > Character.MAX_CODE_POINT) {
+			return -1;
+		}
+		converted.appendCodePoint((int) value);
+		return end;
+	}
+
+	/**
+	 * Helper function that converts a named entity like {@code &amp;}
+	 *
+	 * @param text      the text
+	 * @param start     the ampersand
+	 * @param converted the converted text to append to
+	 * @return the semicolon of the entity, or -1 if it is not one
+	 */
+	private static int named(String text, int start, StringBuilder converted) {
+		int limit = Math.min(text.length(), start + LONGEST);
+		for (int end = start + 1; end < limit; end++) {
+			if (text.charAt(end) == ';') {
+				String entity = ENTITIES.get(text.substring(start, end + 1));
+				if (entity == null) {
+					return -1;
+				}
+				converted.append(entity);
+				return end;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Helper function that checks for the ASCII hex digits a numeric entity is
+	 * made of
+	 *
+	 * @param c the character
+	 * @return {@code true} if the character is a hex digit
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+	}
+
+	/**
+	 * Helper function that finds the link of an anchor tag, the same way
+	 * {@link LinkParser} does
+	 *
+	 * @param tag the tag, from its opening to its closing bracket
+	 * @return the quoted href, or null if the tag is not an anchor tag with one
+	 */
+	private static String href(CharSequence tag) {
+		int length = tag.length();
+		if (length < 3 || lower(tag.charAt(1)) != 'a') {
+			return null;
+		}
+		for (int i = 3; i + 4 < length; i++) {
+			if (!matches(tag, i, "href")) {
+				continue;
+			}
+			int j = i + 4;
+			while (j < length && isSpace(tag.charAt(j))) {
+				j++;
+			}
+			if (j >= length || tag.charAt(j) != '=') {
+				continue;
+			}
+			j++;
+			while (j < length && isSpace(tag.charAt(j))) {
+				j++;
+			}
+			if (j >= length || tag.charAt(j) != '"') {
+				continue;
+			}
+			int start = ++j;
+			while (j < length && tag.charAt(j) != '"' && tag.charAt(j) != '>') {
+				j++;
+			}
+			if (j < length && tag.charAt(j) == '"') {
+				return tag.subSequence(start, j).toString();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Helper function that checks for a lowercase name, ignoring the case of the
+	 * text
+	 *
+	 * @param text   the text
+	 * @param offset where the name should start
+	 * @param name   the lowercase name
+	 * @return {@code true} if the name is at the offset
+	 */
+	private static boolean matches(CharSequence text, int offset, String name) {
+		if (offset + name.length() > text.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (lower(text.charAt(offset + i)) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Helper function that checks how text ends
+	 *
+	 * @param text   the text
+	 * @param suffix the ending
+	 * @return {@code true} if the text ends with the suffix
+	 */
+	private static boolean endsWith(CharSequence text, String suffix) {
+		int offset = text.length() - suffix.length();
+		if (offset < 0) {
+			return false;
+		}
+		for (int i = 0; i < suffix.length(); i++) {
+			if (text.charAt(offset + i) != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Helper function that lowers the case of ASCII letters only, like a case
+	 * insensitive regular expression does
+	 *
+	 * @param c the character
+	 * @return the lowercase character
+	 */
+	private static char lower(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * Helper function that checks for the whitespace matched by {@code \s} in a
+	 * regular expression
+	 *
+	 * @param c the character
+	 * @return {@code true} if the character is whitespace
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * Cleans a whole page at once
+	 *
+	 * @param html  the HTML of the page
+	 * @param links receives the href of every anchor tag
+	 * @return the text of the page
+	 */
+	public static String scan(String html, Consumer<String> links) {
+		StringBuilder text = new StringBuilder(html.length() / 2);
+		HtmlScanner scanner = new HtmlScanner(text::append, links);
+		scanner.scan(html);
+		scanner.finish();
+		return text.toString();
+	}
+}
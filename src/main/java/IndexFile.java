@@ -0,0 +1,210 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Reads and writes an inverted index in a compact binary format, so an index
+ * can be saved once and loaded later without reading and stemming the original
+ * text again. All numbers are big-endian and all strings use the modified UTF-8
+ * of {@link DataOutputStream#writeUTF(String)}. The file is laid out as:
+ *
+ * <pre>
+ * header:     int magic, int version, long offset of the postings section
+ * documents:  int count, then for each document: location, int word count
+ * dictionary: int count, then for each word in sorted order:
+ *             word, long offset of its postings (relative to the postings section),
+ *             int number of documents
+ * postings:   for each word, for each document in location order:
+ *             int document, int size, int last position, int byte length, bytes
+ * </pre>
+ *
+ * The bytes of every posting are the delta and variable-byte encoded positions
+ * of a {@link PositionList}, so they are copied as-is in both directions. The
+ * dictionary comes before the postings and records where each word's postings
+ * start, so a reader does not have to go through the postings to find a word.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class IndexFile {
+
+	/** Marks the start of every binary index file. */
+	public static final int MAGIC = 0x53454958;
+
+	/** The version of the format written by this class. */
+	public static final int VERSION = 1;
+
+	/** The number of bytes in the header. */
+	public static final int HEADER_LENGTH = 16;
+
+	/** The number of bytes in a posting before its encoded positions. */
+	public static final int POSTING_HEADER_LENGTH = 16;
+
+	/**
+	 * Writes the index to a file in the binary format
+	 *
+	 * @param index     the words mapped to document ids mapped to positions
+	 * @param documents the table used to convert document ids into locations
+	 * @param wordCount the word counts indexed by document id
+	 * @param path      the file to write to
+	 * @throws IOException if unable to write the file
+	 */
+	public static void write(SortedMap<String, ? extends Map<Integer, PositionList>> index, DocumentTable documents,
+			int[] wordCount, Path path) throws IOException {
+		int documentCount = documents.size();
+
+		// the postings start right after the dictionary, so measure it first
+		long postingsOffset = HEADER_LENGTH + 4 + 4;
+		for (int id = 0; id < documentCount; id++) {
+			postingsOffset += 2 + utfLength(documents.get(id)) + 4;
+		}
+		for (String word : index.keySet()) {
+			postingsOffset += 2 + utfLength(word) + 8 + 4;
+		}
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(postingsOffset);
+
+			output.writeInt(documentCount);
+			for (int id = 0; id < documentCount; id++) {
+				output.writeUTF(documents.get(id));
+				output.writeInt(id < wordCount.length ? wordCount[id] : 0);
+			}
+
+			output.writeInt(index.size());
+			long offset = 0;
+			for (Map.Entry<String, ? extends Map<Integer, PositionList>> word : index.entrySet()) {
+				output.writeUTF(word.getKey());
+				output.writeLong(offset);
+				output.writeInt(word.getValue().size());
+				for (PositionList positions : word.getValue().values()) {
+					offset += POSTING_HEADER_LENGTH + positions.byteLength();
+				}
+			}
+
+			for (Map<Integer, PositionList> postings : index.values()) {
+				for (Map.Entry<Integer, PositionList> posting : postings.entrySet()) {
+					PositionList positions = posting.getValue();
+					output.writeInt(posting.getKey());
+					output.writeInt(positions.size());
+					output.writeInt(positions.last());
+					output.writeInt(positions.byteLength());
+					output.write(positions.bytes(), 0, positions.byteLength());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads an index written in the binary format and adds it to an index, the
+	 * same way {@link InvertedIndex#addAll(InvertedIndex)} would
+	 *
+	 * @param path  the file to read from
+	 * @param index the index to add to
+	 * @throws IOException if unable to read the file or it is not a binary index
+	 */
+	public static void read(Path path, InvertedIndex index) throws IOException {
+		// nothing read can be longer than the file, so larger counts mean it is corrupt
+		long fileSize = Files.size(path);
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			readHeader(input, path);
+
+			int documentCount = input.readInt();
+			check(documentCount >= 0 && documentCount <= fileSize / 6, path);
+			int[] documents = new int[documentCount];
+			for (int id = 0; id < documentCount; id++) {
+				String location = input.readUTF();
+				documents[id] = index.addDocument(location, input.readInt());
+			}
+
+			int wordCount = input.readInt();
+			check(wordCount >= 0 && wordCount <= fileSize / 14, path);
+			String[] words = new String[wordCount];
+			int[] sizes = new int[wordCount];
+			for (int i = 0; i < wordCount; i++) {
+				words[i] = input.readUTF();
+				input.readLong();
+				sizes[i] = input.readInt();
+				check(sizes[i] >= 0 && sizes[i] <= documentCount, path);
+			}
+
+			for (int i = 0; i < wordCount; i++) {
+				for (int j = 0; j < sizes[i]; j++) {
+					int document = input.readInt();
+					int size = input.readInt();
+					int last = input.readInt();
+					int length = input.readInt();
+					check(document >= 0 && document < documentCount, path);
+					check(size >= 0 && length >= 0 && length <= fileSize, path);
+					byte[] bytes = new byte[length];
+					input.readFully(bytes);
+					index.addPositions(words[i], documents[document], new PositionList(bytes, bytes.length, size, last));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper function that fails if something read from a binary index is not
+	 * possible in a valid one
+	 *
+	 * @param valid {@code true} if what was read is possible
+	 * @param path  the file being read
+	 * @throws IOException if what was read is not possible
+	 */
+	static void check(boolean valid, Path path) throws IOException {
+		if (!valid) {
+			throw new IOException("Corrupt binary index: " + path);
+		}
+	}
+
+	/**
+	 * Reads and checks the header of a binary index
+	 *
+	 * @param input the input positioned at the start of the file
+	 * @param path  the file being read
+	 * @return the offset of the postings section
+	 * @throws IOException if unable to read the file or it is not a binary index
+	 */
+	public static long readHeader(DataInputStream input, Path path) throws IOException {
+		if (input.readInt() != MAGIC) {
+			throw new IOException("Not a binary index: " + path);
+		}
+		int version = input.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary index version " + version + ": " + path);
+		}
+		return input.readLong();
+	}
+
+	/**
+	 * Calculates how many bytes {@link DataOutputStream#writeUTF(String)} uses for
+	 * the text, not including the 2 byte length
+	 *
+	 * @param text the text
+	 * @return the number of bytes
+	 */
+	private static int utfLength(String text) {
+		int length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				length += 1;
+			} else if (c <= 0x07FF) {
+				length += 2;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+}
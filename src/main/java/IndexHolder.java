@@ -0,0 +1,275 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the index being served, so a new index can be built in the background
+ * and swapped in without stopping or slowing down the searches. Searches
+ * {@link #acquire()} a lease on the current index and release it when done.
+ * Publishing a new index is a single atomic swap of the current lease, so no
+ * lock is held across the swap and no search has to wait for it.
+ *
+ * Searches that started before the swap finish on the old index. Every lease
+ * counts the searches using it, plus one for the holder while it is current.
+ * Once the count reaches zero, the old index is released: its cache is cleared
+ * and it is closed if it can be. A search never acquires a lease whose count
+ * already reached zero, and tries the current lease again instead.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class IndexHolder {
+
+	/** the lease on the index being served */
+	private final AtomicReference<Lease> current;
+
+	/** builds a new index to serve, or null if the index cannot be reloaded */
+	private final Loader loader;
+
+	/** the number of queries each cache remembers, or 0 to search without one */
+	private final int cacheCapacity;
+
+	/** {@code true} while a reload is running in the background */
+	private final AtomicBoolean reloading;
+
+	/**
+	 * Constructor for index holder
+	 *
+	 * @param index         the index to serve first
+	 * @param cacheCapacity the number of queries each cache remembers, or 0 to
+	 *                      search without a cache
+	 * @param loader        builds a new index to serve, or null if the index
+	 *                      cannot be reloaded
+	 */
+	public IndexHolder(InvertedIndex index, int cacheCapacity, Loader loader) {
+		this.cacheCapacity = Math.max(cacheCapacity, 0);
+		this.loader = loader;
+		this.current = new AtomicReference<>(new Lease(index, cache(index), 1));
+		this.reloading = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Gets a lease on the current index. The lease must be released once the
+	 * search is done, so the index can be released after it is replaced.
+	 *
+	 * @return the lease
+	 */
+	public Lease acquire() {
+		while (true) {
+			Lease lease = current.get();
+			if (lease.retain()) {
+				return lease;
+			}
+		}
+	}
+
+	/**
+	 * Serves a new index from now on. Searches already using the old index
+	 * finish on it, and it is released once the last of them is done.
+	 *
+	 * @param index the new index, which must not change while it is served
+	 */
+	public synchronized void publish(InvertedIndex index) {
+		Lease next = new Lease(index, cache(index), current.get().generation + 1);
+		current.getAndSet(next).release();
+	}
+
+	/**
+	 * Builds a new index with the loader and serves it
+	 *
+	 * @throws IOException if there is no loader or unable to build the index
+	 */
+	public void reload() throws IOException {
+		if (loader == null) {
+			throw new IOException("The index cannot be reloaded.");
+		}
+		publish(loader.load());
+	}
+
+	/**
+	 * Starts building a new index in the background, unless a reload is already
+	 * running. The new index is served once it is built.
+	 *
+	 * @return {@code true} if a reload was started
+	 */
+	public boolean reloadInBackground() {
+		if (loader == null || !reloading.compareAndSet(false, true)) {
+			return false;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				reload();
+			} catch (IOException e) {
+				System.out.println("Unable to reload the index.");
+			} finally {
+				reloading.set(false);
+			}
+		}, "IndexReload");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * Checks if the index can be reloaded
+	 *
+	 * @return {@code true} if there is a loader
+	 */
+	public boolean canReload() {
+		return loader != null;
+	}
+
+	/**
+	 * Checks if a reload is running in the background
+	 *
+	 * @return {@code true} if a reload is running
+	 */
+	public boolean isReloading() {
+		return reloading.get();
+	}
+
+	/**
+	 * Gets the generation of the current index, which starts at 1 and goes up
+	 * by one every time a new index is published
+	 *
+	 * @return the generation
+	 */
+	public long getGeneration() {
+		return current.get().generation;
+	}
+
+	/**
+	 * Helper function that creates the cache for an index
+	 *
+	 * @param index the index
+	 * @return the cache, or null if not caching
+	 */
+	private QueryCache cache(InvertedIndex index) {
+		return cacheCapacity > 0 ? new QueryCache(index, cacheCapacity) : null;
+	}
+
+	/**
+	 * Builds a new index to serve
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		/**
+		 * builds the index
+		 *
+		 * @return the new index
+		 * @throws IOException if unable to build the index
+		 */
+		InvertedIndex load() throws IOException;
+	}
+
+	/**
+	 * A counted use of a single index and its cache
+	 */
+	public static class Lease implements AutoCloseable {
+		/** the index */
+		private final InvertedIndex index;
+
+		/** the cache of results for the index, or null */
+		private final QueryCache cache;
+
+		/** the generation of the index */
+		private final long generation;
+
+		/** the number of searches using the index, plus one while it is current */
+		private final AtomicInteger references;
+
+		/**
+		 * constructor for lease
+		 *
+		 * @param index      the index
+		 * @param cache      the cache of results for the index, or null
+		 * @param generation the generation of the index
+		 */
+		private Lease(InvertedIndex index, QueryCache cache, long generation) {
+			this.index = index;
+			this.cache = cache;
+			this.generation = generation;
+			this.references = new AtomicInteger(1);
+		}
+
+		/**
+		 * searches the index, or the cache if there is one
+		 *
+		 * @param queries the stems of the query
+		 * @param exact   {@code true} for an exact search
+		 * @param limit   the most results kept
+		 * @return the results
+		 */
+		public List<InvertedIndex.Result> search(Set<String> queries, boolean exact, int limit) {
+			return cache != null ? cache.search(queries, exact, limit) : index.search(queries, exact, limit);
+		}
+
+		/**
+		 * gets the index
+		 *
+		 * @return the index
+		 */
+		public InvertedIndex getIndex() {
+			return index;
+		}
+
+		/**
+		 * gets the generation of the index
+		 *
+		 * @return the generation
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * Ends this use of the index, releasing the index if it was replaced and
+		 * this was the last use
+		 */
+		@Override
+		public void close() {
+			release();
+		}
+
+		/**
+		 * Helper function that counts another use of the index, unless it was
+		 * already released
+		 *
+		 * @return {@code true} if the index can be used
+		 */
+		private boolean retain() {
+			int count;
+			do {
+				count = references.get();
+				if (count == 0) {
+					return false;
+				}
+			} while (!references.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		/**
+		 * Helper function that ends a use of the index, and releases it after the
+		 * last use
+		 */
+		private void release() {
+			if (references.decrementAndGet() == 0) {
+				if (cache != null) {
+					cache.clear();
+				}
+				if (index instanceof Closeable) {
+					try {
+						((Closeable) index).close();
+					} catch (IOException e) {
+						System.err.println("Warning: Unable to close a replaced index.");
+					}
+				}
+			}
+		}
+	}
+}
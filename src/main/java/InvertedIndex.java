@@ -1,17 +1,21 @@
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
-import opennlp.tools.stemmer.Stemmer;
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 /**
@@ -24,14 +28,26 @@ import opennlp.tools.stemmer.snowball.SnowballStemmer;
 public class InvertedIndex {
 
 	/**
-	 * this is our data structure
+	 * this is our data structure, the inner maps are keyed by document id and
+	 * ordered by location
 	 */
-	private final TreeMap<String, TreeMap<String, Collection<Integer>>> index;
+	private final TreeMap<String, TreeMap<Integer, PositionList>> index;
 
 	/**
-	 * this is our wordCount map
+	 * assigns every location a document id
 	 */
-	private final TreeMap<String, Integer> wordCount;
+	private final DocumentTable documents;
+
+	/**
+	 * this is our wordCount array, indexed by document id
+	 */
+	private int[] wordCount;
+
+	/**
+	 * counts the changes made to the index, so saved search results can tell
+	 * whether they are still up to date
+	 */
+	private final AtomicLong version;
 	
 	/** The default stemmer algorithm used by this class. */
 	public static final SnowballStemmer.ALGORITHM DEFAULT = SnowballStemmer.ALGORITHM.ENGLISH;
@@ -40,8 +56,20 @@ public class InvertedIndex {
 	 * Constructor for inverted index
 	 */
 	public InvertedIndex() {
-		index = new TreeMap<String, TreeMap<String, Collection<Integer>>>();
-		wordCount = new TreeMap<String, Integer>();
+		this(new DocumentTable());
+	}
+
+	/**
+	 * Constructor for an inverted index that shares its document ids with other
+	 * indexes
+	 * 
+	 * @param documents the table used to assign document ids
+	 */
+	InvertedIndex(DocumentTable documents) {
+		this.index = new TreeMap<String, TreeMap<Integer, PositionList>>();
+		this.documents = documents;
+		this.wordCount = new int[0];
+		this.version = new AtomicLong();
 	}
 
 	/*
@@ -69,7 +97,29 @@ public class InvertedIndex {
 	 */
 	public Collection<String> getLocations(String key) {
 		if (this.containsWord(key)) {
-			return Collections.unmodifiableCollection(this.index.get(key).keySet());
+			Collection<Integer> ids = this.index.get(key).keySet();
+			return new AbstractCollection<String>() {
+				@Override
+				public Iterator<String> iterator() {
+					Iterator<Integer> idIterator = ids.iterator();
+					return new Iterator<String>() {
+						@Override
+						public boolean hasNext() {
+							return idIterator.hasNext();
+						}
+
+						@Override
+						public String next() {
+							return documents.get(idIterator.next());
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return ids.size();
+				}
+			};
 		} else {
 			return Collections.emptySet();
 		}
@@ -85,7 +135,7 @@ public class InvertedIndex {
 	 */
 	public Collection<Integer> getPositions(String outerKey, String innerKey) {
 		if (this.containsLocation(outerKey, innerKey)) {
-			return Collections.unmodifiableCollection(this.index.get(outerKey).get(innerKey));
+			return Collections.unmodifiableCollection(this.index.get(outerKey).get(documents.get(innerKey)));
 		}
 		return Collections.emptySet();
 	}
@@ -110,8 +160,9 @@ public class InvertedIndex {
 	 * 
 	 */
 	public boolean containsLocation(String outerKey, String innerKey) {
-		if (this.containsWord(outerKey)) {
-			return this.index.get(outerKey).containsKey(innerKey);
+		int id = documents.get(innerKey);
+		if (id >= 0 && this.containsWord(outerKey)) {
+			return this.index.get(outerKey).containsKey(id);
 		} else {
 			return false;
 		}
@@ -128,7 +179,7 @@ public class InvertedIndex {
 	 */
 	public boolean containsPosition(String outerKey, String innerKey, Integer value) {
 		if (this.containsLocation(outerKey, innerKey)) {
-			return this.index.get(outerKey).get(innerKey).contains(value);
+			return this.index.get(outerKey).get(documents.get(innerKey)).contains(value);
 		} else {
 			return false;
 		}
@@ -142,16 +193,36 @@ public class InvertedIndex {
 	 * @param value    position
 	 */
 	public void add(String word, String location, Integer value) {
-		Stemmer stemmer = new SnowballStemmer(DEFAULT);
-		word = stemmer.stem(word).toString();
-		this.index.putIfAbsent(word, new TreeMap<>());
-		this.index.get(word).putIfAbsent(location, new TreeSet<>());
-		boolean modified = this.index.get(word).get(location).add(value);
-		if (modified) {
-			this.addToWordCount(location);
+		this.add(StemCache.getShared().stem(word), documents.add(location), value);
+		this.modified();
+	}
+
+	/**
+	 * add method for an already stemmed word and a document id
+	 * 
+	 * @param stem     the stemmed word
+	 * @param document the document id of the location
+	 * @param value    position
+	 */
+	private void add(String stem, int document, int value) {
+		if (this.addPosition(stem, document, value)) {
+			this.addToWordCount(document, 1);
 		}
 	}
 
+	/**
+	 * adds a position for an already stemmed word without updating the word count
+	 * 
+	 * @param stem     the stemmed word
+	 * @param document the document id of the location
+	 * @param value    position
+	 * @return {@code true} if the position was not already in the index
+	 */
+	boolean addPosition(String stem, int document, int value) {
+		return this.index.computeIfAbsent(stem, key -> new TreeMap<>(documents.comparator()))
+				.computeIfAbsent(document, key -> new PositionList()).add(value);
+	}
+
 	/**
 	 * size method for the entire inverted index
 	 * 
@@ -184,7 +255,7 @@ public class InvertedIndex {
 	 */
 	public int sizePositions(String outerKey, String innerKey) {
 		if (this.containsLocation(outerKey, innerKey)) {
-			return this.index.get(outerKey).get(innerKey).size();
+			return this.index.get(outerKey).get(documents.get(innerKey)).size();
 		} else {
 			return -1;
 		}
@@ -203,7 +274,109 @@ public class InvertedIndex {
 	 * @throws IOException Catch this is driver
 	 */
 	public void indexWriter(Path filename) throws IOException {
-		SimpleJsonWriter.asNestedArray(this.index, filename);
+		SimpleJsonWriter.asNestedArray(this.index, documents, filename);
+	}
+
+	/**
+	 * writes our inverted index into a specified file in the binary format
+	 *
+	 * @param filename the file to save the index to
+	 * @throws IOException Catch this is driver
+	 *
+	 * @see IndexFile
+	 */
+	public void binaryWriter(Path filename) throws IOException {
+		IndexFile.write(this.index, documents, wordCount, filename);
+	}
+
+	/**
+	 * reads an index saved in the binary format into our inverted index
+	 *
+	 * @param filename the file to load the index from
+	 * @throws IOException if unable to read the file or it is not a binary index
+	 *
+	 * @see IndexFile
+	 */
+	public void binaryReader(Path filename) throws IOException {
+		IndexFile.read(filename, this);
+	}
+
+	/**
+	 * Getter for the document table
+	 * 
+	 * @return the table of document ids used by this index
+	 */
+	DocumentTable documents() {
+		return documents;
+	}
+
+	/**
+	 * gets the number of changes made to the index so far
+	 * 
+	 * @return the version of the index
+	 */
+	long version() {
+		return version.get();
+	}
+
+	/**
+	 * records a change to the index, call once the change is complete
+	 */
+	void modified() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Getter for the postings of every word
+	 * 
+	 * @return the words mapped to document ids mapped to positions
+	 */
+	SortedMap<String, TreeMap<Integer, PositionList>> postings() {
+		return Collections.unmodifiableSortedMap(this.index);
+	}
+
+	/**
+	 * Getter for the word counts
+	 * 
+	 * @return the word counts indexed by document id, not a copy
+	 */
+	int[] wordCounts() {
+		return wordCount;
+	}
+
+	/**
+	 * adds a document and its word count, used when loading a saved index
+	 * 
+	 * @param location the location of the document
+	 * @param count    the word count to add
+	 * @return the document id of the location
+	 */
+	int addDocument(String location, int count) {
+		int document = documents.add(location);
+		if (count > 0) {
+			this.addToWordCount(document, count);
+		}
+		this.modified();
+		return document;
+	}
+
+	/**
+	 * adds the positions of a stem in a document, used when loading a saved index
+	 * 
+	 * @param stem      the stemmed word
+	 * @param document  the document id of the location
+	 * @param positions the positions to add
+	 */
+	void addPositions(String stem, int document, PositionList positions) {
+		TreeMap<Integer, PositionList> postings = this.index.computeIfAbsent(stem,
+				key -> new TreeMap<>(documents.comparator()));
+		PositionList existing = postings.get(document);
+		if (existing == null) {
+			postings.put(document, positions);
+		} else {
+			existing.addAll(positions);
+		}
+		this.modified();
 	}
 
 	/**
@@ -213,11 +386,14 @@ public class InvertedIndex {
 	 * @param location the location the words were found
 	 */
 	public void addAll(List<String> words, String location) {
+		StemCache stemmer = StemCache.getShared();
+		int document = documents.add(location);
 		int position = 0;
 		for (String word : words) {
 			position++;
-			this.add(word, location, position);
+			this.add(stemmer.stem(word), document, position);
 		}
+		this.modified();
 	}
 
 	/**
@@ -227,28 +403,149 @@ public class InvertedIndex {
 	 */
 	public void addAll(InvertedIndex other) {
 		// first part adds the words
-		for (String word : other.index.keySet()) {
-			if (this.index.containsKey(word)) {
-				for (String location : other.index.get(word).keySet()) {
-					if (this.index.get(word).containsKey(location)) {
-						this.index.get(word).get(location).addAll(other.index.get(word).get(location));
-					} else {
-						this.index.get(word).put(location, other.index.get(word).get(location));
-					}
+		this.addWords(other, other.postings().keySet());
+		// second part updates the word counts
+		this.addWordCounts(other);
+	}
+
+	/**
+	 * adds some of the words of another index to the index, without updating the
+	 * word counts
+	 * 
+	 * @param other the index to add from
+	 * @param words the words of the other index to add
+	 */
+	void addWords(InvertedIndex other, Collection<String> words) {
+		// other keeps its own document ids, so translate them as we go
+		int[] translated = this.translation(other);
+		SortedMap<String, TreeMap<Integer, PositionList>> source = other.postings();
+
+		for (String word : words) {
+			TreeMap<Integer, PositionList> postings = this.index.computeIfAbsent(word,
+					key -> new TreeMap<>(documents.comparator()));
+			for (Map.Entry<Integer, PositionList> posting : source.get(word).entrySet()) {
+				int document = this.translate(other, translated, posting.getKey());
+				PositionList positions = postings.get(document);
+				if (positions == null) {
+					postings.put(document, posting.getValue());
+				} else {
+					positions.addAll(posting.getValue());
 				}
-			} else {
-				this.index.put(word, other.index.get(word));
 			}
 		}
-		// second part updates the word counts
-		for (String location : other.wordCount.keySet()) {
-			if (this.wordCount.containsKey(location)) {
-				this.wordCount.put(location, this.wordCount.get(location) + other.wordCount.get(location));
-			} else {
-				this.wordCount.put(location, other.wordCount.get(location));
+		this.modified();
+	}
+
+	/**
+	 * adds the word counts of another index to the word counts
+	 * 
+	 * @param other the index to add from
+	 */
+	void addWordCounts(InvertedIndex other) {
+		int[] translated = this.translation(other);
+		int[] counts = other.wordCounts();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] > 0) {
+				this.addToWordCount(this.translate(other, translated, id), counts[id]);
+			}
+		}
+		this.modified();
+	}
+
+	/**
+	 * removes documents from the index, along with all of their positions and
+	 * word counts. The locations keep their document ids, so adding them again
+	 * later reuses the same ids.
+	 * 
+	 * @param locations the locations of the documents to remove
+	 */
+	public void removeAll(Collection<String> locations) {
+		Set<Integer> removed = this.ids(locations);
+		this.removeWords(removed);
+		this.removeWordCounts(removed);
+	}
+
+	/**
+	 * Helper function that finds the document ids of locations
+	 * 
+	 * @param locations the locations
+	 * @return the document ids of the locations that have one
+	 */
+	Set<Integer> ids(Collection<String> locations) {
+		Set<Integer> ids = new HashSet<>();
+		for (String location : locations) {
+			int id = documents.get(location);
+			if (id >= 0) {
+				ids.add(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * removes every position of some documents, without updating the word counts
+	 * 
+	 * @param removed the document ids to remove
+	 */
+	void removeWords(Set<Integer> removed) {
+		if (removed.isEmpty()) {
+			return;
+		}
+		Iterator<TreeMap<Integer, PositionList>> iterator = this.index.values().iterator();
+		while (iterator.hasNext()) {
+			TreeMap<Integer, PositionList> postings = iterator.next();
+			postings.keySet().removeAll(removed);
+			if (postings.isEmpty()) {
+				iterator.remove();
 			}
 		}
+		this.modified();
+	}
 
+	/**
+	 * removes the word counts of some documents
+	 * 
+	 * @param removed the document ids to remove
+	 */
+	void removeWordCounts(Set<Integer> removed) {
+		for (int id : removed) {
+			if (id < wordCount.length) {
+				wordCount[id] = 0;
+			}
+		}
+		this.modified();
+	}
+
+	/**
+	 * Helper function that creates the table used to translate the document ids of
+	 * another index
+	 * 
+	 * @param other the other index
+	 * @return the document ids translated so far, all -1
+	 */
+	private int[] translation(InvertedIndex other) {
+		int[] translated = new int[other.documents.size()];
+		Arrays.fill(translated, -1);
+		return translated;
+	}
+
+	/**
+	 * Helper function that converts a document id from another index into a
+	 * document id of this index
+	 * 
+	 * @param other      the other index
+	 * @param translated the ids translated so far, -1 if not translated yet
+	 * @param id         the document id in the other index
+	 * @return the document id in this index
+	 */
+	private int translate(InvertedIndex other, int[] translated, int id) {
+		if (other.documents == this.documents) {
+			return id;
+		}
+		if (translated[id] < 0) {
+			translated[id] = this.documents.add(other.documents.get(id));
+		}
+		return translated[id];
 	}
 
 	/**
@@ -258,17 +555,18 @@ public class InvertedIndex {
 	 * @return a list of results, in order
 	 */
 	public List<Result> exactSearch(Set<String> queries) {
-		Map<String, Result> lookup = new HashMap<String, Result>();
-		List<Result> results = new ArrayList<>();
-
-		for (String query : queries) {
-			if (this.index.containsKey(query)) {
-				this.lookup(lookup, results, query);
-			}
-		}
+		return this.top(this.exactMatches(queries), Integer.MAX_VALUE);
+	}
 
-		Collections.sort(results);
-		return results;
+	/**
+	 * searches the index for exact queries, keeping only the best results
+	 * 
+	 * @param queries the queries we are searching for
+	 * @param limit   the most results to return
+	 * @return a list of at most limit results, in order
+	 */
+	public List<Result> exactSearch(Set<String> queries, int limit) {
+		return this.top(this.exactMatches(queries), limit);
 	}
 
 	/**
@@ -278,40 +576,141 @@ public class InvertedIndex {
 	 * @return a list of results, in order
 	 */
 	public List<Result> partialSearch(Set<String> queries) {
-		Map<String, Result> lookup = new HashMap<>();
-		List<Result> results = new ArrayList<>();
+		return this.top(this.partialMatches(queries), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * searches the index for parts of queries, keeping only the best results
+	 * 
+	 * @param queries the queries we are searching for
+	 * @param limit   the most results to return
+	 * @return a list of at most limit results, in order
+	 */
+	public List<Result> partialSearch(Set<String> queries, int limit) {
+		return this.top(this.partialMatches(queries), limit);
+	}
+
+	/**
+	 * finds the matches for exact queries
+	 * 
+	 * @param queries the queries we are searching for
+	 * @return the matches in every document, in the order they were found
+	 */
+	Matches exactMatches(Set<String> queries) {
+		Matches matches = new Matches(documents.size());
 
 		for (String query : queries) {
-			for (String word : this.index.tailMap(query).keySet()) {
-				if (word.startsWith(query)) {
-					this.lookup(lookup, results, word);
-				} else {
-					break;
-				}
+			this.collect(query, matches);
+		}
+
+		return matches;
+	}
+
+	/**
+	 * finds the matches for parts of queries
+	 * 
+	 * @param queries the queries we are searching for
+	 * @return the matches in every document, in the order they were found
+	 */
+	Matches partialMatches(Set<String> queries) {
+		Matches matches = new Matches(documents.size());
+		List<String> words = new ArrayList<>();
+
+		for (String query : queries) {
+			words.clear();
+			this.findWords(query, words);
+			for (String word : words) {
+				this.collect(word, matches);
 			}
 		}
 
-		Collections.sort(results);
-		return results;
+		return matches;
 	}
 
 	/**
-	 * Helper function loops through the lookup to get the search results
+	 * Helper function that finds the words starting with a prefix, in order
 	 * 
-	 * @param lookup  the lookup map
-	 * @param results the singular result
-	 * @param word    the word we found
+	 * @param prefix the start of the words
+	 * @param words  where the words go
 	 */
-	private void lookup(Map<String, Result> lookup, List<Result> results, String word) {
-		for (String path : this.index.get(word).keySet()) {
-			if (!lookup.containsKey(path)) {
-				Result local = new Result(path);
-				lookup.putIfAbsent(path, local);
-				results.add(local);
+	void findWords(String prefix, Collection<String> words) {
+		for (String word : this.index.tailMap(prefix).keySet()) {
+			if (word.startsWith(prefix)) {
+				words.add(word);
+			} else {
+				break;
 			}
+		}
+	}
+
+	/**
+	 * Helper function that adds the matches of a word in every document
+	 * 
+	 * @param word    the word we are looking for
+	 * @param matches the matches so far
+	 */
+	void collect(String word, Matches matches) {
+		TreeMap<Integer, PositionList> postings = this.index.get(word);
+		if (postings != null) {
+			for (Map.Entry<Integer, PositionList> posting : postings.entrySet()) {
+				matches.add(posting.getKey(), posting.getValue().size());
+			}
+		}
+	}
+
+	/**
+	 * Helper function that turns the matches into search results, scored using
+	 * the word counts of this index
+	 * 
+	 * @param matches the matches found
+	 * @return a list of results, in the order they were found
+	 */
+	List<Result> results(Matches matches) {
+		List<Result> results = new ArrayList<>(matches.size);
+		for (int i = 0; i < matches.size; i++) {
+			Result result = new Result(matches.found[i]);
+			result.update(matches.counts[matches.found[i]]);
+			results.add(result);
+		}
+		return results;
+	}
+
+	/**
+	 * Helper function that scores the matches and sorts the best results. When
+	 * there are more matches than the limit, only the limit best results so far
+	 * are kept in a heap while scoring, instead of sorting every result.
+	 * 
+	 * @param matches the matches found
+	 * @param limit   the most results to return
+	 * @return a list of at most limit results, in order
+	 */
+	List<Result> top(Matches matches, int limit) {
+		if (limit >= matches.size) {
+			List<Result> results = this.results(matches);
+			Collections.sort(results);
+			return results;
+		}
+
+		if (limit <= 0) {
+			return new ArrayList<>();
+		}
 
-			lookup.get(path).update(word);
+		// the head of the heap is the worst result kept so far
+		PriorityQueue<Result> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		for (int i = 0; i < matches.size; i++) {
+			Result result = new Result(matches.found[i]);
+			result.update(matches.counts[matches.found[i]]);
+			if (heap.size() < limit) {
+				heap.add(result);
+			} else if (result.compareTo(heap.peek()) < 0) {
+				heap.poll();
+				heap.add(result);
+			}
 		}
+
+		List<Result> results = new ArrayList<>(heap);
+		Collections.sort(results);
+		return results;
 	}
 
 	/**
@@ -329,6 +728,22 @@ public class InvertedIndex {
 		}
 	}
 
+	/**
+	 * deterines whether to exact search or not, keeping only the best results
+	 * 
+	 * @param queries the query set
+	 * @param exact   boolean if exact search
+	 * @param limit   the most results to return
+	 * @return a list of at most limit results
+	 */
+	public List<Result> search(Set<String> queries, boolean exact, int limit) {
+		if (exact) {
+			return this.exactSearch(queries, limit);
+		} else {
+			return this.partialSearch(queries, limit);
+		}
+	}
+
 	/**
 	 * contains method for word count
 	 * 
@@ -336,16 +751,21 @@ public class InvertedIndex {
 	 * @return if the file exists in the word count
 	 */
 	public boolean containsWordCount(String location) {
-		return this.wordCount.containsKey(location);
+		int id = documents.get(location);
+		return id >= 0 && id < wordCount.length && wordCount[id] > 0;
 	}
 
 	/**
 	 * add method for word count
 	 * 
-	 * @param location the file the count came from
+	 * @param document the document id the count came from
+	 * @param count    the amount to add
 	 */
-	private void addToWordCount(String location) {
-		this.wordCount.put(location, wordCount.getOrDefault(location, 0) + 1);
+	void addToWordCount(int document, int count) {
+		if (document >= wordCount.length) {
+			wordCount = Arrays.copyOf(wordCount, Math.max(document + 1, wordCount.length * 2));
+		}
+		wordCount[document] += count;
 	}
 
 	/**
@@ -355,7 +775,8 @@ public class InvertedIndex {
 	 * @return the word count at that location
 	 */
 	public Integer getWordCount(String location) {
-		return wordCount.getOrDefault(location, 0);
+		int id = documents.get(location);
+		return id >= 0 && id < wordCount.length ? wordCount[id] : 0;
 	}
 
 	/**
@@ -365,7 +786,7 @@ public class InvertedIndex {
 	 * @throws IOException throws if file doesn't exist
 	 */
 	public void writeWordCount(Path countPath) throws IOException {
-		SimpleJsonWriter.asObject(wordCount, countPath);
+		SimpleJsonWriter.asObject(wordCount, documents, countPath);
 	}
 
 	/*
@@ -373,6 +794,51 @@ public class InvertedIndex {
 	 * These are methods for the query:
 	 */
 
+	/**
+	 * Stores the number of matches found in each document while searching, in the
+	 * order the documents were first found
+	 */
+	static class Matches {
+		/** the number of matches, indexed by document id */
+		private int[] counts;
+
+		/** the document ids with matches, in the order they were found */
+		private int[] found;
+
+		/** the number of documents found */
+		private int size;
+
+		/**
+		 * constructor for the matches
+		 * 
+		 * @param documents the expected number of documents
+		 */
+		Matches(int documents) {
+			this.counts = new int[Math.max(documents, 1)];
+			this.found = new int[16];
+			this.size = 0;
+		}
+
+		/**
+		 * adds matches in a document
+		 * 
+		 * @param document the document id
+		 * @param matches  the number of positions that matched
+		 */
+		void add(int document, int matches) {
+			if (document >= counts.length) {
+				counts = Arrays.copyOf(counts, Math.max(document + 1, counts.length * 2));
+			}
+			if (counts[document] == 0) {
+				if (size == found.length) {
+					found = Arrays.copyOf(found, size * 2);
+				}
+				found[size++] = document;
+			}
+			counts[document] += matches;
+		}
+	}
+
 	/**
 	 * Inner class that stores a single result
 	 * 
@@ -381,9 +847,9 @@ public class InvertedIndex {
 	 */
 	public class Result implements Comparable<Result> {
 		/**
-		 * stores where the count came from
+		 * stores the document id of where the count came from
 		 */
-		private final String location;
+		private final int document;
 		/**
 		 * the amount of hits it found
 		 */
@@ -396,10 +862,10 @@ public class InvertedIndex {
 		/**
 		 * Constructor for the result
 		 * 
-		 * @param location the location
+		 * @param document the document id of the location
 		 */
-		public Result(String location) {
-			this.location = location;
+		public Result(int document) {
+			this.document = document;
 			this.count = 0;
 			this.score = 0.0;
 		}
@@ -410,7 +876,7 @@ public class InvertedIndex {
 		 * @return a string of the location
 		 */
 		public String getLocation() {
-			return location;
+			return documents.get(document);
 		}
 
 		/**
@@ -434,11 +900,11 @@ public class InvertedIndex {
 		/**
 		 * updates the result with a new count and score
 		 * 
-		 * @param query the query
+		 * @param matches the number of positions the query matched
 		 */
-		private void update(String query) {
-			this.count += index.get(query).get(location).size();
-			this.score = this.count / (double) wordCount.get(location);
+		void update(int matches) {
+			this.count += matches;
+			this.score = this.count / (double) wordCount[document];
 		}
 
 		@Override
@@ -448,7 +914,7 @@ public class InvertedIndex {
 				return scoreComparison;
 			} else {
 				int countComparison = Integer.compare(original.getCount(), this.getCount());
-				if (countComparison < 0) {
+				if (countComparison != 0) {
 					return countComparison;
 				} else {
 					return this.getLocation().compareToIgnoreCase(original.getLocation());
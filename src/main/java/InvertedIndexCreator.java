@@ -3,7 +3,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-
+import java.util.ArrayList;
 
 /**
  * Class responsible for converting an array list into the map data structure
@@ -32,6 +32,27 @@ public class InvertedIndexCreator {
 		}
 	}
 
+	/**
+	 * updates the index with only the files under the input path that were added
+	 * or changed since the manifest was last updated, and drops the files that
+	 * were removed
+	 *
+	 * @param inputPath       the file or directory being indexed
+	 * @param myInvertedIndex the index built from the files last time
+	 * @param manifest        the files the index was built from
+	 * @return the changes found
+	 * @throws IOException if unable to read a file
+	 */
+	public static FileManifest.Changes updateInvertedIndex(Path inputPath, InvertedIndex myInvertedIndex,
+			FileManifest manifest) throws IOException {
+		FileManifest.Changes changes = manifest.update(inputPath);
+		myInvertedIndex.removeAll(changes.getDropped());
+		for (Path currentPath : changes.getChanged()) {
+			singleFileStemmer(currentPath, myInvertedIndex);
+		}
+		return changes;
+	}
+
 	/**
 	 * stems a single file
 	 *
@@ -43,9 +64,13 @@ public class InvertedIndexCreator {
 	public static void singleFileStemmer(Path inputPath, InvertedIndex myInvertedIndex) throws IOException {
 		int counter = 0;
 		String location = inputPath.toString();
+		ArrayList<String> words = new ArrayList<>();
+		TextTokenizer tokenizer = new TextTokenizer(words::add);
 		try (BufferedReader myBufferedReader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8);) {
 			for (String line = myBufferedReader.readLine(); line != null; line = myBufferedReader.readLine()) {
-				for (String word : TextParser.parse(line)) {
+				words.clear();
+				tokenizer.parse(line);
+				for (String word : words) {
 					counter++;
 					myInvertedIndex.add(word, location, counter);
 				}
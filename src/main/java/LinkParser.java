@@ -3,6 +3,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,14 +44,32 @@ public class LinkParser {
 	 * @return list of all valid http(s) links in the order they were found
 	 */
 	public static ArrayList<URL> getValidLinks(URL base, String html) {
-		ArrayList<URL> urlList = new ArrayList<URL>();
+		ArrayList<String> hrefs = new ArrayList<String>();
 		String regex = "(?is)(<a[^>]+?href\\s*=\\s*\"([^\">]*)\")";
 		Pattern pattern = Pattern.compile(regex, Pattern.DOTALL | Pattern.MULTILINE);
 		Matcher matcher = pattern.matcher(html);
 
 		while (matcher.find()) {
+			hrefs.add(matcher.group(2));
+		}
+		return getValidLinks(base, hrefs);
+
+	}
+
+	/**
+	 * Returns a list of all the valid HTTP(S) links from hrefs already found, for
+	 * example by {@link HtmlScanner}. The links are converted and filtered the
+	 * same way as {@link #getValidLinks(URL, String)}.
+	 *
+	 * @param base  the base url used to convert relative links to absolute
+	 * @param hrefs the hrefs of the anchor tags in the order they were found
+	 * @return list of all valid http(s) links in the order they were found
+	 */
+	public static ArrayList<URL> getValidLinks(URL base, List<String> hrefs) {
+		ArrayList<URL> urlList = new ArrayList<URL>();
+		for (String href : hrefs) {
 			try {
-				URL currentURL = new URL(base, matcher.group(2));
+				URL currentURL = new URL(base, href);
 				URL normalized = normalize(currentURL);
 				if (normalized.getProtocol().startsWith("http")) {
 					urlList.add(normalized);
@@ -61,6 +80,5 @@ public class LinkParser {
 
 		}
 		return urlList;
-
 	}
 }
\ No newline at end of file
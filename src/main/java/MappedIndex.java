@@ -0,0 +1,438 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only inverted index served directly from a binary index file written
+ * by {@link IndexFile}. Only the documents and the word dictionary are read
+ * into memory. The postings stay in the file, which is memory-mapped, and are
+ * only read when a search or lookup needs them. This lets an index larger than
+ * the heap be searched, starts almost instantly, and lets several processes
+ * share the same pages of the file through the operating system.
+ *
+ * The file is mapped in chunks of whole words, since a single mapping is
+ * limited to 2 GB. The index never changes, so it is safe to search from
+ * multiple threads, and every method that would add to it or remove from it
+ * throws an {@link UnsupportedOperationException}.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class MappedIndex extends ThreadSafeInvertedIndex {
+
+	/** the file this index is mapped from */
+	private final Path path;
+
+	/** the words in sorted order */
+	private final String[] words;
+
+	/** the number of documents for each word */
+	private final int[] sizes;
+
+	/** which mapped chunk the postings of each word are in */
+	private final int[] chunks;
+
+	/** where the postings of each word start within their chunk */
+	private final int[] offsets;
+
+	/** the mapped chunks of the postings section */
+	private final MappedByteBuffer[] buffers;
+
+	/**
+	 * Constructor for a mapped index
+	 *
+	 * @param path the binary index file to map
+	 * @throws IOException if unable to read the file or it is not a binary index
+	 */
+	public MappedIndex(Path path) throws IOException {
+		super();
+		this.path = path;
+
+		long postingsOffset;
+		long[] starts;
+		long fileSize = Files.size(path);
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			postingsOffset = IndexFile.readHeader(input, path);
+			IndexFile.check(postingsOffset >= IndexFile.HEADER_LENGTH && postingsOffset <= fileSize, path);
+
+			int documentCount = input.readInt();
+			IndexFile.check(documentCount >= 0 && documentCount <= fileSize / 6, path);
+			for (int id = 0; id < documentCount; id++) {
+				String location = input.readUTF();
+				this.addDocument(location, input.readInt());
+			}
+
+			int wordCount = input.readInt();
+			IndexFile.check(wordCount >= 0 && wordCount <= fileSize / 14, path);
+			this.words = new String[wordCount];
+			this.sizes = new int[wordCount];
+			starts = new long[wordCount];
+			for (int i = 0; i < wordCount; i++) {
+				words[i] = input.readUTF();
+				starts[i] = input.readLong();
+				sizes[i] = input.readInt();
+				IndexFile.check(sizes[i] >= 0 && sizes[i] <= documentCount, path);
+				IndexFile.check(starts[i] >= (i > 0 ? starts[i - 1] : 0) && starts[i] <= fileSize - postingsOffset, path);
+			}
+		}
+
+		this.chunks = new int[words.length];
+		this.offsets = new int[words.length];
+		List<MappedByteBuffer> mapped = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size() - postingsOffset;
+			long chunkStart = 0;
+			for (int i = 0; i < words.length; i++) {
+				long end = i + 1 < words.length ? starts[i + 1] : length;
+				if (end - chunkStart > Integer.MAX_VALUE) {
+					if (end - starts[i] > Integer.MAX_VALUE) {
+						throw new IOException("Postings too large to map for " + words[i] + ": " + path);
+					}
+					mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, postingsOffset + chunkStart,
+							starts[i] - chunkStart));
+					chunkStart = starts[i];
+				}
+				chunks[i] = mapped.size();
+				offsets[i] = (int) (starts[i] - chunkStart);
+			}
+			mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, postingsOffset + chunkStart, length - chunkStart));
+		}
+		this.buffers = mapped.toArray(new MappedByteBuffer[0]);
+	}
+
+	/**
+	 * Getter for the file this index is mapped from
+	 *
+	 * @return the path of the binary index file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/*
+	 * Methods for index
+	 */
+
+	@Override
+	public Collection<String> getWords() {
+		return Collections.unmodifiableList(Arrays.asList(words));
+	}
+
+	@Override
+	public Collection<String> getLocations(String key) {
+		int word = find(key);
+		if (word < 0) {
+			return Collections.emptySet();
+		}
+		List<String> locations = new ArrayList<>(sizes[word]);
+		MappedByteBuffer buffer = buffers[chunks[word]];
+		int offset = offsets[word];
+		for (int i = 0; i < sizes[word]; i++) {
+			locations.add(documents().get(buffer.getInt(offset)));
+			offset += IndexFile.POSTING_HEADER_LENGTH + buffer.getInt(offset + 12);
+		}
+		return Collections.unmodifiableList(locations);
+	}
+
+	@Override
+	public Collection<Integer> getPositions(String outerKey, String innerKey) {
+		PositionList positions = positions(find(outerKey), documents().get(innerKey));
+		if (positions == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableCollection(positions);
+	}
+
+	@Override
+	public boolean containsWord(String key) {
+		return find(key) >= 0;
+	}
+
+	@Override
+	public boolean containsLocation(String outerKey, String innerKey) {
+		return posting(find(outerKey), documents().get(innerKey)) >= 0;
+	}
+
+	@Override
+	public boolean containsPosition(String outerKey, String innerKey, Integer value) {
+		PositionList positions = positions(find(outerKey), documents().get(innerKey));
+		return positions != null && positions.contains(value);
+	}
+
+	@Override
+	public int sizeWords() {
+		return words.length;
+	}
+
+	@Override
+	public int sizeLocations(String key) {
+		int word = find(key);
+		return word < 0 ? -1 : sizes[word];
+	}
+
+	@Override
+	public int sizePositions(String outerKey, String innerKey) {
+		int word = find(outerKey);
+		int offset = posting(word, documents().get(innerKey));
+		return offset < 0 ? -1 : buffers[chunks[word]].getInt(offset + 4);
+	}
+
+	@Override
+	public String toString() {
+		return new PostingsView().toString();
+	}
+
+	@Override
+	public void indexWriter(Path filename) throws IOException {
+		SimpleJsonWriter.asNestedArray(new PostingsView(), documents(), filename);
+	}
+
+	@Override
+	public void binaryWriter(Path filename) throws IOException {
+		if (!Files.isSameFile(path, filename)) {
+			Files.copy(path, filename, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@Override
+	public void binaryReader(Path filename) throws IOException {
+		throw new UnsupportedOperationException("A memory-mapped index is read-only.");
+	}
+
+	@Override
+	public void add(String outerKey, String innerKey, Integer value) {
+		throw new UnsupportedOperationException("A memory-mapped index is read-only.");
+	}
+
+	@Override
+	public void addAll(List<String> words, String location) {
+		throw new UnsupportedOperationException("A memory-mapped index is read-only.");
+	}
+
+	@Override
+	public void addAll(InvertedIndex other) {
+		throw new UnsupportedOperationException("A memory-mapped index is read-only.");
+	}
+
+	@Override
+	public void removeAll(Collection<String> locations) {
+		throw new UnsupportedOperationException("A memory-mapped index is read-only.");
+	}
+
+	/*
+	 * Methods for searching
+	 */
+
+	@Override
+	Matches exactMatches(Set<String> queries) {
+		Matches matches = new Matches(documents().size());
+
+		for (String query : queries) {
+			int word = find(query);
+			if (word >= 0) {
+				this.lookup(matches, word);
+			}
+		}
+
+		return matches;
+	}
+
+	@Override
+	Matches partialMatches(Set<String> queries) {
+		Matches matches = new Matches(documents().size());
+
+		for (String query : queries) {
+			int word = find(query);
+			if (word < 0) {
+				word = -(word + 1);
+			}
+			while (word < words.length && words[word].startsWith(query)) {
+				this.lookup(matches, word);
+				word++;
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Helper function loops through the postings of a word to get the matches,
+	 * only reading the number of positions of each posting
+	 *
+	 * @param matches the matches so far
+	 * @param word    the index of the word we found
+	 */
+	private void lookup(Matches matches, int word) {
+		MappedByteBuffer buffer = buffers[chunks[word]];
+		int offset = offsets[word];
+		for (int i = 0; i < sizes[word]; i++) {
+			matches.add(buffer.getInt(offset), buffer.getInt(offset + 4));
+			offset += IndexFile.POSTING_HEADER_LENGTH + buffer.getInt(offset + 12);
+		}
+	}
+
+	/*
+	 * Methods for reading the mapped postings
+	 */
+
+	/**
+	 * finds a word in the dictionary
+	 *
+	 * @param key the word
+	 * @return the index of the word, or a negative number if it is not in the
+	 *         index
+	 *
+	 * @see Arrays#binarySearch(Object[], Object)
+	 */
+	private int find(String key) {
+		return Arrays.binarySearch(words, key);
+	}
+
+	/**
+	 * finds the posting of a document for a word
+	 *
+	 * @param word     the index of the word
+	 * @param document the document id
+	 * @return the offset of the posting in its chunk, or -1 if not found
+	 */
+	private int posting(int word, int document) {
+		if (word < 0 || document < 0) {
+			return -1;
+		}
+		MappedByteBuffer buffer = buffers[chunks[word]];
+		int offset = offsets[word];
+		for (int i = 0; i < sizes[word]; i++) {
+			if (buffer.getInt(offset) == document) {
+				return offset;
+			}
+			offset += IndexFile.POSTING_HEADER_LENGTH + buffer.getInt(offset + 12);
+		}
+		return -1;
+	}
+
+	/**
+	 * reads the positions of a document for a word
+	 *
+	 * @param word     the index of the word
+	 * @param document the document id
+	 * @return the positions, or {@code null} if not found
+	 */
+	private PositionList positions(int word, int document) {
+		int offset = posting(word, document);
+		return offset < 0 ? null : decode(buffers[chunks[word]], offset);
+	}
+
+	/**
+	 * reads the posting at an offset into a position list
+	 *
+	 * @param buffer the chunk the posting is in
+	 * @param offset the offset of the posting
+	 * @return the positions of the posting
+	 */
+	private static PositionList decode(MappedByteBuffer buffer, int offset) {
+		byte[] bytes = new byte[buffer.getInt(offset + 12)];
+		buffer.get(offset + IndexFile.POSTING_HEADER_LENGTH, bytes);
+		return new PositionList(bytes, bytes.length, buffer.getInt(offset + 4), buffer.getInt(offset + 8));
+	}
+
+	/**
+	 * A read-only map view of the mapped postings, which reads the postings of a
+	 * word when they are requested
+	 */
+	private class PostingsView extends AbstractMap<String, Map<Integer, PositionList>> {
+
+		@Override
+		public Map<Integer, PositionList> get(Object key) {
+			return key instanceof String ? postings(find((String) key)) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && find((String) key) >= 0;
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return new AbstractSet<String>() {
+				@Override
+				public Iterator<String> iterator() {
+					return Arrays.asList(words).iterator();
+				}
+
+				@Override
+				public int size() {
+					return words.length;
+				}
+			};
+		}
+
+		@Override
+		public Set<Map.Entry<String, Map<Integer, PositionList>>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Map<Integer, PositionList>>>() {
+				@Override
+				public Iterator<Map.Entry<String, Map<Integer, PositionList>>> iterator() {
+					return new Iterator<Map.Entry<String, Map<Integer, PositionList>>>() {
+						/** the index of the next word */
+						private int word = 0;
+
+						@Override
+						public boolean hasNext() {
+							return word < words.length;
+						}
+
+						@Override
+						public Map.Entry<String, Map<Integer, PositionList>> next() {
+							Map.Entry<String, Map<Integer, PositionList>> entry = new AbstractMap.SimpleImmutableEntry<>(
+									words[word], postings(word));
+							word++;
+							return entry;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return words.length;
+				}
+			};
+		}
+
+		/**
+		 * reads every posting of a word, in location order
+		 *
+		 * @param word the index of the word
+		 * @return the document ids mapped to positions, or {@code null} if not found
+		 */
+		private Map<Integer, PositionList> postings(int word) {
+			if (word < 0) {
+				return null;
+			}
+			Map<Integer, PositionList> postings = new LinkedHashMap<>();
+			MappedByteBuffer buffer = buffers[chunks[word]];
+			int offset = offsets[word];
+			for (int i = 0; i < sizes[word]; i++) {
+				postings.put(buffer.getInt(offset), decode(buffer, offset));
+				offset += IndexFile.POSTING_HEADER_LENGTH + buffer.getInt(offset + 12);
+			}
+			return Collections.unmodifiableMap(postings);
+		}
+	}
+}
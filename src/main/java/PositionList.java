@@ -0,0 +1,384 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted set of word positions stored as a compressed posting list. Positions
+ * are kept in ascending order as the difference (delta) from the previous
+ * position, and every delta is written using a variable-byte encoding where
+ * each byte stores 7 bits of the value and the high bit marks that more bytes
+ * follow. Since positions are almost always added in increasing order, most
+ * positions take a single byte instead of a boxed {@link Integer} inside of a
+ * tree node.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class PositionList extends AbstractSet<Integer> {
+
+	/** The initial capacity of the encoded bytes. */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/** the encoded deltas */
+	private byte[] bytes;
+
+	/** the number of bytes in use */
+	private int length;
+
+	/** the number of positions stored */
+	private int size;
+
+	/** the largest position stored */
+	private int last;
+
+	/**
+	 * Constructor for an empty position list
+	 */
+	public PositionList() {
+		this.bytes = new byte[INITIAL_CAPACITY];
+		this.length = 0;
+		this.size = 0;
+		this.last = 0;
+	}
+
+	/**
+	 * Constructor for a position list from already encoded bytes
+	 *
+	 * @param bytes  the encoded deltas
+	 * @param length the number of bytes in use
+	 * @param size   the number of positions encoded
+	 * @param last   the largest position encoded
+	 */
+	PositionList(byte[] bytes, int length, int size, int last) {
+		this.bytes = bytes;
+		this.length = length;
+		this.size = size;
+		this.last = last;
+	}
+
+	/**
+	 * adds a position to the list
+	 *
+	 * @param position the position to add
+	 * @return {@code true} if the position was not already in the list
+	 */
+	public boolean add(int position) {
+		if (size == 0) {
+			append(position);
+		} else if (position > last) {
+			append(position - last);
+		} else if (position == last) {
+			return false;
+		} else {
+			return insert(position);
+		}
+		last = position;
+		size++;
+		return true;
+	}
+
+	@Override
+	public boolean add(Integer position) {
+		return add(position.intValue());
+	}
+
+	/**
+	 * adds every position from another list
+	 *
+	 * @param other the list to add
+	 * @return {@code true} if this list changed
+	 */
+	public boolean addAll(PositionList other) {
+		if (other.size == 0) {
+			return false;
+		}
+		if (this.size == 0 || other.first() > this.last) {
+			// every position comes after ours, so only the first delta changes
+			int first = other.first();
+			int skip = varIntLength(first);
+			append(this.size == 0 ? first : first - this.last);
+			ensureCapacity(other.length - skip);
+			System.arraycopy(other.bytes, skip, this.bytes, this.length, other.length - skip);
+			this.length += other.length - skip;
+			this.size += other.size;
+			this.last = other.last;
+			return true;
+		}
+
+		int[] merged = merge(this.toIntArray(), other.toIntArray());
+		if (merged.length == this.size) {
+			return false;
+		}
+		encode(merged, merged.length);
+		return true;
+	}
+
+	/**
+	 * contains method for a single position
+	 *
+	 * @param position the position to look for
+	 * @return {@code true} if the position is in the list
+	 */
+	public boolean contains(int position) {
+		if (size == 0 || position > last) {
+			return false;
+		}
+		int offset = 0;
+		int value = 0;
+		for (int i = 0; i < size; i++) {
+			int delta = 0;
+			int shift = 0;
+			byte current;
+			do {
+				current = bytes[offset++];
+				delta |= (current & 0x7F) << shift;
+				shift += 7;
+			} while (current < 0);
+			value += delta;
+			if (value == position) {
+				return true;
+			}
+			if (value > position) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * gets the smallest position
+	 *
+	 * @return the first position in the list
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		int value = 0;
+		int shift = 0;
+		int offset = 0;
+		byte current;
+		do {
+			current = bytes[offset++];
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while (current < 0);
+		return value;
+	}
+
+	/**
+	 * gets the largest position
+	 *
+	 * @return the last position in the list
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return last;
+	}
+
+	/**
+	 * decodes the positions into a primitive array
+	 *
+	 * @return an array of the positions in ascending order
+	 */
+	public int[] toIntArray() {
+		int[] positions = new int[size];
+		int offset = 0;
+		int value = 0;
+		for (int i = 0; i < size; i++) {
+			int delta = 0;
+			int shift = 0;
+			byte current;
+			do {
+				current = bytes[offset++];
+				delta |= (current & 0x7F) << shift;
+				shift += 7;
+			} while (current < 0);
+			value += delta;
+			positions[i] = value;
+		}
+		return positions;
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			/** the number of positions returned so far */
+			private int index = 0;
+
+			/** the offset of the next encoded delta */
+			private int offset = 0;
+
+			/** the previous position returned */
+			private int value = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Integer next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				int delta = 0;
+				int shift = 0;
+				byte current;
+				do {
+					current = bytes[offset++];
+					delta |= (current & 0x7F) << shift;
+					shift += 7;
+				} while (current < 0);
+				value += delta;
+				index++;
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * Getter for the encoded bytes, only valid up to {@link #byteLength()}
+	 *
+	 * @return the encoded deltas
+	 */
+	byte[] bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Getter for the number of encoded bytes in use
+	 *
+	 * @return the number of bytes in use
+	 */
+	int byteLength() {
+		return length;
+	}
+
+	/**
+	 * inserts a position that belongs before the last position
+	 *
+	 * @param position the position to insert
+	 * @return {@code true} if the position was not already in the list
+	 */
+	private boolean insert(int position) {
+		int[] positions = toIntArray();
+		int found = Arrays.binarySearch(positions, position);
+		if (found >= 0) {
+			return false;
+		}
+		int insertion = -(found + 1);
+		int[] inserted = new int[size + 1];
+		System.arraycopy(positions, 0, inserted, 0, insertion);
+		inserted[insertion] = position;
+		System.arraycopy(positions, insertion, inserted, insertion + 1, size - insertion);
+		encode(inserted, inserted.length);
+		return true;
+	}
+
+	/**
+	 * re-encodes the list from sorted positions
+	 *
+	 * @param positions the positions in ascending order
+	 * @param count     the number of positions to use
+	 */
+	private void encode(int[] positions, int count) {
+		this.length = 0;
+		this.size = 0;
+		for (int i = 0; i < count; i++) {
+			append(i == 0 ? positions[i] : positions[i] - positions[i - 1]);
+		}
+		this.size = count;
+		this.last = positions[count - 1];
+	}
+
+	/**
+	 * writes a single delta using the variable byte encoding
+	 *
+	 * @param delta the delta to write
+	 */
+	private void append(int delta) {
+		ensureCapacity(5);
+		while ((delta & ~0x7F) != 0) {
+			bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		bytes[length++] = (byte) delta;
+	}
+
+	/**
+	 * makes room for more encoded bytes
+	 *
+	 * @param extra the number of bytes needed
+	 */
+	private void ensureCapacity(int extra) {
+		if (length + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+		}
+	}
+
+	/**
+	 * gets how many bytes a value takes to encode
+	 *
+	 * @param value the value
+	 * @return the number of bytes
+	 */
+	private static int varIntLength(int value) {
+		int count = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * merges two sorted arrays without duplicates
+	 *
+	 * @param first  the first sorted array
+	 * @param second the second sorted array
+	 * @return the sorted union of both arrays
+	 */
+	private static int[] merge(int[] first, int[] second) {
+		int[] merged = new int[first.length + second.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < first.length && j < second.length) {
+			if (first[i] < second[j]) {
+				merged[k++] = first[i++];
+			} else if (first[i] > second[j]) {
+				merged[k++] = second[j++];
+			} else {
+				merged[k++] = first[i++];
+				j++;
+			}
+		}
+		while (i < first.length) {
+			merged[k++] = first[i++];
+		}
+		while (j < second.length) {
+			merged[k++] = second[j++];
+		}
+		return Arrays.copyOf(merged, k);
+	}
+}
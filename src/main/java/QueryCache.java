@@ -0,0 +1,194 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of search results for an inverted index. The
+ * results are remembered by the sorted stems of the query, whether the search
+ * was exact and the result limit, so the same query is only searched once no
+ * matter which thread or search results object asks for it. When the cache is
+ * full, the least recently used query is forgotten.
+ *
+ * Every result remembers the version of the index it was found in. Once the
+ * index is changed, the remembered results no longer count as hits and are
+ * replaced the next time the query is searched.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class QueryCache {
+
+	/** The default number of queries to remember. */
+	public static final int DEFAULT_CAPACITY = 1_000;
+
+	/** the index being searched */
+	private final InvertedIndex index;
+
+	/** maps a query key to its results, in least recently used order */
+	private final LinkedHashMap<String, Cached> entries;
+
+	/** the max number of queries to remember */
+	private final int capacity;
+
+	/** the number of searches found in the cache */
+	private final LongAdder hits;
+
+	/** the number of searches that had to search the index */
+	private final LongAdder misses;
+
+	/**
+	 * Constructor for query cache
+	 *
+	 * @param index    the index being searched
+	 * @param capacity the max number of queries to remember
+	 */
+	public QueryCache(InvertedIndex index, int capacity) {
+		this.index = index;
+		this.capacity = Math.max(capacity, 1);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+				return size() > QueryCache.this.capacity;
+			}
+		};
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	/**
+	 * Constructor for query cache with the default capacity
+	 *
+	 * @param index the index being searched
+	 */
+	public QueryCache(InvertedIndex index) {
+		this(index, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * searches the index, using the remembered results if they are up to date
+	 *
+	 * @param queries the stemmed queries
+	 * @param exact   {@code true} for an exact search
+	 * @param limit   the most results to return
+	 * @return an unmodifiable list of results, in order
+	 */
+	public List<InvertedIndex.Result> search(Set<String> queries, boolean exact, int limit) {
+		String key = key(queries, exact, limit);
+		long version = index.version();
+
+		synchronized (entries) {
+			Cached cached = entries.get(key);
+			if (cached != null && cached.version == version) {
+				hits.increment();
+				return cached.results;
+			}
+		}
+
+		// search outside of the lock so other queries do not wait on this one
+		misses.increment();
+		List<InvertedIndex.Result> results = Collections.unmodifiableList(index.search(queries, exact, limit));
+		synchronized (entries) {
+			entries.put(key, new Cached(version, results));
+		}
+		return results;
+	}
+
+	/**
+	 * Helper function that creates the key of a query
+	 *
+	 * @param queries the stemmed queries
+	 * @param exact   {@code true} for an exact search
+	 * @param limit   the most results to return
+	 * @return the key
+	 */
+	private static String key(Set<String> queries, boolean exact, int limit) {
+		Set<String> sorted = queries instanceof SortedSet ? queries : new TreeSet<>(queries);
+		return (exact ? "exact " : "partial ") + limit + " " + String.join(" ", sorted);
+	}
+
+	/**
+	 * gets the number of searches found in the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * gets the number of searches that had to search the index
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * gets the fraction of searches found in the cache
+	 *
+	 * @return the hit rate between 0 and 1
+	 */
+	public double getHitRate() {
+		long hit = getHits();
+		long total = hit + getMisses();
+		return total == 0 ? 0 : hit / (double) total;
+	}
+
+	/**
+	 * gets the number of queries remembered
+	 *
+	 * @return the size of the cache
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * forgets every remembered query and resets the counters
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d queries, %d hits, %d misses", size(), getHits(), getMisses());
+	}
+
+	/**
+	 * The results of a query and the version of the index they were found in
+	 */
+	private static class Cached {
+		/** the version of the index */
+		private final long version;
+
+		/** the results */
+		private final List<InvertedIndex.Result> results;
+
+		/**
+		 * constructor for cached results
+		 *
+		 * @param version the version of the index
+		 * @param results the results
+		 */
+		public Cached(long version, List<InvertedIndex.Result> results) {
+			this.version = version;
+			this.results = results;
+		}
+	}
+}
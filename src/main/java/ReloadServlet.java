@@ -0,0 +1,68 @@
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Starts rebuilding the served index in the background on a POST request. The
+ * response is sent right away, and searches keep using the current index until
+ * the new one is built and swapped in by the {@link IndexHolder}. A GET request
+ * only reports the generation of the current index and whether a reload is
+ * running.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class ReloadServlet extends HttpServlet {
+
+	/** Class version for serialization. */
+	private static final long serialVersionUID = 1L;
+
+	/** holds the index being served */
+	private final transient IndexHolder holder;
+
+	/**
+	 * Constructor for reload servlet
+	 *
+	 * @param holder holds the index being served
+	 */
+	public ReloadServlet(IndexHolder holder) {
+		this.holder = holder;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		respond(response, HttpServletResponse.SC_OK);
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (!holder.canReload()) {
+			response.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, "The index cannot be reloaded.");
+		} else if (holder.reloadInBackground()) {
+			respond(response, HttpServletResponse.SC_ACCEPTED);
+		} else {
+			respond(response, HttpServletResponse.SC_CONFLICT);
+		}
+	}
+
+	/**
+	 * Helper function that responds with the state of the holder as JSON
+	 *
+	 * @param response the response
+	 * @param status   the status code
+	 * @throws IOException if unable to write the response
+	 */
+	private void respond(HttpServletResponse response, int status) throws IOException {
+		response.setStatus(status);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.getWriter().printf("{%n\t\"generation\": %d,%n\t\"reloading\": %b%n}%n", holder.getGeneration(),
+				holder.isReloading());
+	}
+}
@@ -27,23 +27,57 @@ public class SearchResults implements SearchResultsInterface {
 	 */
 	private final InvertedIndex index;
 
+	/**
+	 * the most results kept for each query
+	 */
+	private final int limit;
+
+	/**
+	 * the cache shared with other searches, or null if not caching
+	 */
+	private final QueryCache cache;
+
 	/**
 	 * the constructor for this class
 	 * 
 	 * @param myInvertedIndex the index to get the results from
 	 */
 	public SearchResults(InvertedIndex myInvertedIndex) {
+		this(myInvertedIndex, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * the constructor for this class, keeping only the best results
+	 * 
+	 * @param myInvertedIndex the index to get the results from
+	 * @param limit           the most results kept for each query
+	 */
+	public SearchResults(InvertedIndex myInvertedIndex, int limit) {
+		this(myInvertedIndex, limit, null);
+	}
+
+	/**
+	 * the constructor for this class, keeping only the best results and sharing
+	 * them through a cache
+	 * 
+	 * @param myInvertedIndex the index to get the results from
+	 * @param limit           the most results kept for each query
+	 * @param cache           the cache of results for the index, or null
+	 */
+	public SearchResults(InvertedIndex myInvertedIndex, int limit, QueryCache cache) {
 		results = new TreeMap<String, List<InvertedIndex.Result>>();
 		index = myInvertedIndex;
+		this.limit = limit;
+		this.cache = cache;
 	}
 
 	@Override
 	public void search(String queryLine, boolean exact) {
-		TreeSet<String> parsed = TextFileStemmer.uniqueStems(queryLine);
+		TreeSet<String> parsed = TextFileStemmer.uniqueStems(queryLine, StemCache.getShared());
 		if (!parsed.isEmpty()) {
 			String joined = String.join(" ", parsed);
 			if (!results.containsKey(joined)) {
-				results.put(joined, index.search(parsed, exact));
+				results.put(joined, cache != null ? cache.search(parsed, exact, limit) : index.search(parsed, exact, limit));
 			}
 		}
 	}
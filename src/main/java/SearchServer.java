@@ -0,0 +1,110 @@
+import java.io.IOException;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Serves searches of an inverted index over HTTP with an embedded Jetty
+ * server, so the index is built or loaded once and every query after that
+ * only pays for the search itself. Searches are handled by a
+ * {@link SearchServlet} at {@code /search}. The index is held by an
+ * {@link IndexHolder}, and a POST to {@code /reload} rebuilds it in the
+ * background and swaps it in without dropping any requests.
+ *
+ * Requests are run on a pool of between {@link #MIN_THREADS} and a max number
+ * of threads. Threads left idle for longer than a minute are stopped until the
+ * pool is back at its minimum.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class SearchServer {
+
+	/** The default port to listen on. */
+	public static final int DEFAULT_PORT = 8080;
+
+	/** The default max number of threads handling requests. */
+	public static final int DEFAULT_THREADS = 64;
+
+	/** The number of threads always kept, also the least max allowed. */
+	public static final int MIN_THREADS = 8;
+
+	/** The number of milliseconds a thread above the minimum may be idle. */
+	private static final int IDLE_TIMEOUT = 60_000;
+
+	/** the jetty server */
+	private final Server server;
+
+	/** accepts the connections */
+	private final ServerConnector connector;
+
+	/**
+	 * Constructor for search server
+	 *
+	 * @param port    the port to listen on, or 0 for any free port
+	 * @param threads the max number of threads handling requests
+	 * @param holder  holds the index being served
+	 * @param limit   the most results kept for each query
+	 */
+	public SearchServer(int port, int threads, IndexHolder holder, int limit) {
+		QueuedThreadPool pool = new QueuedThreadPool(Math.max(threads, MIN_THREADS), MIN_THREADS, IDLE_TIMEOUT);
+		pool.setName("SearchServer");
+		this.server = new Server(pool);
+
+		this.connector = new ServerConnector(server);
+		this.connector.setPort(port);
+		this.server.addConnector(connector);
+
+		ServletContextHandler handler = new ServletContextHandler();
+		handler.addServlet(new ServletHolder(new SearchServlet(holder, limit)), "/search");
+		handler.addServlet(new ServletHolder(new ReloadServlet(holder)), "/reload");
+		this.server.setHandler(handler);
+	}
+
+	/**
+	 * Starts serving requests
+	 *
+	 * @throws IOException if unable to start the server
+	 */
+	public void start() throws IOException {
+		try {
+			server.start();
+		} catch (Exception e) {
+			throw new IOException("Unable to start the search server.", e);
+		}
+	}
+
+	/**
+	 * Waits until the server is stopped
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void join() throws InterruptedException {
+		server.join();
+	}
+
+	/**
+	 * Stops serving requests, ignoring any errors
+	 */
+	public void stop() {
+		try {
+			server.stop();
+		} catch (Exception e) {
+			System.err.println("Warning: Unable to stop the search server.");
+		}
+	}
+
+	/**
+	 * gets the port the server listens on, which is only known for port 0 once
+	 * the server started
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return connector.getLocalPort();
+	}
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Searches an inverted index for the queries of a GET request and responds with
+ * the results as JSON, in the same format {@link SimpleJsonWriter} writes search
+ * results to a file. The request takes these parameters:
+ *
+ * <pre>
+ * q:     a query line, which may be given more than once
+ * exact: "true" for an exact search instead of a partial search
+ * limit: the most results kept for each query, at most the server limit
+ * </pre>
+ *
+ * Every request searches the index held by an {@link IndexHolder}, so the
+ * index can be replaced while requests are served. A request uses the same
+ * index for all of its queries, and the generation of that index is sent in
+ * the "X-Index-Generation" header. The index is only read, so any number of
+ * requests can be served at the same time.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class SearchServlet extends HttpServlet {
+
+	/** Class version for serialization. */
+	private static final long serialVersionUID = 1L;
+
+	/** holds the index being searched */
+	private final transient IndexHolder holder;
+
+	/** the most results kept for each query */
+	private final int limit;
+
+	/**
+	 * Constructor for search servlet
+	 *
+	 * @param holder holds the index being searched
+	 * @param limit  the most results kept for each query
+	 */
+	public SearchServlet(IndexHolder holder, int limit) {
+		this.holder = holder;
+		this.limit = limit;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		boolean exact = "true".equalsIgnoreCase(request.getParameter("exact"));
+		int max = limit;
+		String limited = request.getParameter("limit");
+		if (limited != null) {
+			try {
+				max = Math.min(Math.max(Integer.parseInt(limited.strip()), 0), limit);
+			} catch (NumberFormatException e) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit: " + limited);
+				return;
+			}
+		}
+
+		TreeMap<String, List<InvertedIndex.Result>> results = new TreeMap<>();
+		String[] lines = request.getParameterValues("q");
+		long generation;
+		try (IndexHolder.Lease lease = holder.acquire()) {
+			generation = lease.getGeneration();
+			if (lines != null) {
+				for (String line : lines) {
+					TreeSet<String> parsed = TextFileStemmer.uniqueStems(line, StemCache.getShared());
+					String joined = String.join(" ", parsed);
+					if (!parsed.isEmpty() && !results.containsKey(joined)) {
+						results.put(joined, lease.search(parsed, exact, max));
+					}
+				}
+			}
+		}
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setHeader("X-Index-Generation", Long.toString(generation));
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		PrintWriter writer = response.getWriter();
+		SimpleJsonWriter.asSearchResult(results, writer, 0);
+		writer.write("\n");
+	}
+}
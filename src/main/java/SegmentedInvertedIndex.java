@@ -0,0 +1,905 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A thread safe inverted index built like a log-structured merge tree. New
+ * positions go into a small in-memory buffer, and once the buffer holds enough
+ * positions it is sealed into an immutable segment of sorted arrays. Searches
+ * fan out over every segment and the buffer and merge what they find. Only the
+ * buffer is locked, so adding a page only ever waits for searches of the
+ * buffer, and the sealed segments are read without any lock.
+ *
+ * A background thread merges the segments, so their number stays small. The
+ * segments are put into tiers by size, where every tier holds segments
+ * {@link #MERGE_FACTOR} times larger than the tier below it, and the segments
+ * of a tier are merged into one once the tier is full. Sealing a buffer and
+ * replacing merged segments both publish a new immutable list of segments, so
+ * a search always sees every position exactly once.
+ *
+ * A document added more than once may have positions in more than one segment,
+ * so the positions of a document are put together while reading. The word
+ * counts are kept separately behind their own lock, and are always added
+ * before the positions they count, the same as {@link ShardedInvertedIndex}.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class SegmentedInvertedIndex extends ThreadSafeInvertedIndex implements Closeable {
+
+	/** The default number of positions buffered before the buffer is sealed. */
+	public static final int DEFAULT_BUFFER = 100_000;
+
+	/** The number of segments in a tier that are merged into one. */
+	public static final int MERGE_FACTOR = 4;
+
+	/** the number of positions buffered before the buffer is sealed */
+	private final int bufferSize;
+
+	/** the sealed segments and the buffer */
+	private volatile State state;
+
+	/** the number of positions in the buffer, only used while writing */
+	private int buffered;
+
+	/** the number of documents when the buffer was last sealed */
+	private int sealedDocuments;
+
+	/** the lock protecting the buffer, and held while publishing a new state */
+	private final ReadWriteLock bufferLock;
+
+	/** the lock protecting the word counts */
+	private final ReadWriteLock countLock;
+
+	/** the thread merging the segments, or null until the first buffer is sealed */
+	private Thread merger;
+
+	/** {@code true} once segments were sealed that the merger has not looked at */
+	private boolean pending;
+
+	/** {@code true} once the index is closed */
+	private boolean closed;
+
+	/**
+	 * constructor for a segmented index with the default buffer size
+	 */
+	public SegmentedInvertedIndex() {
+		this(DEFAULT_BUFFER);
+	}
+
+	/**
+	 * constructor for a segmented index
+	 *
+	 * @param bufferSize the number of positions buffered before the buffer is
+	 *                   sealed, at least 1
+	 */
+	public SegmentedInvertedIndex(int bufferSize) {
+		super();
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("The buffer must hold at least one position.");
+		}
+		this.bufferSize = bufferSize;
+		this.state = new State(Collections.emptyList(), new InvertedIndex(documents()));
+		this.buffered = 0;
+		this.sealedDocuments = 0;
+		this.bufferLock = new ReadWriteLock();
+		this.countLock = new ReadWriteLock();
+		this.merger = null;
+		this.pending = false;
+		this.closed = false;
+	}
+
+	/**
+	 * gets the number of sealed segments
+	 *
+	 * @return the number of segments
+	 */
+	public int segments() {
+		return state.segments.size();
+	}
+
+	/**
+	 * Stops merging segments, waiting for a merge in progress to finish. The
+	 * index can still be searched and added to afterwards.
+	 */
+	@Override
+	public void close() {
+		Thread running;
+		synchronized (this) {
+			closed = true;
+			running = merger;
+			this.notifyAll();
+		}
+		if (running != null) {
+			try {
+				running.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/*
+	 * Methods for index
+	 */
+
+	@Override
+	public Collection<String> getWords() {
+		State current = state;
+		TreeSet<String> words = new TreeSet<>();
+		for (Segment segment : current.segments) {
+			words.addAll(Arrays.asList(segment.words));
+		}
+		bufferLock.readLock().lock();
+		try {
+			words.addAll(current.buffer.getWords());
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+		return Collections.unmodifiableCollection(words);
+	}
+
+	@Override
+	public Collection<String> getLocations(String key) {
+		TreeMap<Integer, PositionList> postings = this.gather(key, state);
+		if (postings.isEmpty()) {
+			return Collections.emptySet();
+		}
+		List<String> locations = new ArrayList<>(postings.size());
+		for (int document : postings.keySet()) {
+			locations.add(documents().get(document));
+		}
+		return Collections.unmodifiableList(locations);
+	}
+
+	@Override
+	public Collection<Integer> getPositions(String outerKey, String innerKey) {
+		PositionList positions = this.positions(outerKey, innerKey);
+		if (positions == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableCollection(positions);
+	}
+
+	@Override
+	public boolean containsWord(String key) {
+		State current = state;
+		for (Segment segment : current.segments) {
+			if (Arrays.binarySearch(segment.words, key) >= 0) {
+				return true;
+			}
+		}
+		bufferLock.readLock().lock();
+		try {
+			return current.buffer.containsWord(key);
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsLocation(String outerKey, String innerKey) {
+		return this.positions(outerKey, innerKey) != null;
+	}
+
+	@Override
+	public boolean containsPosition(String outerKey, String innerKey, Integer value) {
+		PositionList positions = this.positions(outerKey, innerKey);
+		return positions != null && positions.contains(value);
+	}
+
+	@Override
+	public int sizeWords() {
+		return this.getWords().size();
+	}
+
+	@Override
+	public int sizeLocations(String key) {
+		TreeMap<Integer, PositionList> postings = this.gather(key, state);
+		return postings.isEmpty() ? -1 : postings.size();
+	}
+
+	@Override
+	public int sizePositions(String outerKey, String innerKey) {
+		PositionList positions = this.positions(outerKey, innerKey);
+		return positions == null ? -1 : positions.size();
+	}
+
+	@Override
+	public String toString() {
+		return this.merged(state).toString();
+	}
+
+	@Override
+	public void indexWriter(Path filename) throws IOException {
+		SimpleJsonWriter.asNestedArray(this.merged(state), documents(), filename);
+	}
+
+	@Override
+	public void binaryWriter(Path filename) throws IOException {
+		TreeMap<String, TreeMap<Integer, PositionList>> merged = this.merged(state);
+		countLock.readLock().lock();
+		try {
+			IndexFile.write(merged, documents(), super.wordCounts(), filename);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void binaryReader(Path filename) throws IOException {
+		// loaded on the side, so the positions go into the buffer all at once
+		InvertedIndex loaded = new InvertedIndex();
+		IndexFile.read(filename, loaded);
+		this.addAll(loaded);
+	}
+
+	@Override
+	SortedMap<String, TreeMap<Integer, PositionList>> postings() {
+		return Collections.unmodifiableSortedMap(this.merged(state));
+	}
+
+	@Override
+	int[] wordCounts() {
+		countLock.readLock().lock();
+		try {
+			return super.wordCounts().clone();
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	int addDocument(String location, int count) {
+		countLock.writeLock().lock();
+		try {
+			return super.addDocument(location, count);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	void addPositions(String stem, int document, PositionList positions) {
+		bufferLock.writeLock().lock();
+		try {
+			state.buffer.addPositions(stem, document, positions);
+			buffered += positions.size();
+			this.sealIfFull();
+		} finally {
+			bufferLock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Methods for search
+	 */
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries) {
+		return this.top(this.exactMatches(queries), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries, int limit) {
+		return this.top(this.exactMatches(queries), limit);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries) {
+		return this.top(this.partialMatches(queries), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries, int limit) {
+		return this.top(this.partialMatches(queries), limit);
+	}
+
+	@Override
+	Matches partialMatches(Set<String> queries) {
+		Matches matches = new Matches(documents().size());
+		TreeSet<String> words = new TreeSet<>();
+
+		for (String query : queries) {
+			// the words of every segment are needed to keep them in order
+			words.clear();
+			State current = state;
+			for (Segment segment : current.segments) {
+				segment.findWords(query, words);
+			}
+			bufferLock.readLock().lock();
+			try {
+				current.buffer.findWords(query, words);
+			} finally {
+				bufferLock.readLock().unlock();
+			}
+			for (String word : words) {
+				this.collect(word, matches);
+			}
+		}
+
+		return matches;
+	}
+
+	@Override
+	void collect(String word, Matches matches) {
+		State current = state;
+		Segment only = null;
+		int found = 0;
+		for (Segment segment : current.segments) {
+			if (Arrays.binarySearch(segment.words, word) >= 0) {
+				only = segment;
+				found++;
+			}
+		}
+
+		boolean inBuffer;
+		bufferLock.readLock().lock();
+		try {
+			inBuffer = current.buffer.containsWord(word);
+			if (inBuffer && found == 0) {
+				current.buffer.collect(word, matches);
+				return;
+			}
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+
+		if (found == 1 && !inBuffer) {
+			// the documents of a single segment are already in location order
+			only.collect(word, matches);
+		} else if (found > 0) {
+			for (Map.Entry<Integer, PositionList> posting : this.gather(word, current).entrySet()) {
+				matches.add(posting.getKey(), posting.getValue().size());
+			}
+		}
+	}
+
+	@Override
+	List<Result> top(Matches matches, int limit) {
+		countLock.readLock().lock();
+		try {
+			return super.top(matches, limit);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Methods for adding
+	 */
+
+	@Override
+	public void add(String outerKey, String innerKey, Integer value) {
+		String stem = StemCache.getShared().stem(outerKey);
+		int document = documents().add(innerKey);
+
+		bufferLock.writeLock().lock();
+		try {
+			// count it first, so a search never finds the position without its count
+			this.addCount(document, 1);
+			if (!state.buffer.addPosition(stem, document, value) || this.sealed(stem, document, value)) {
+				this.addCount(document, -1);
+			} else {
+				buffered++;
+				this.sealIfFull();
+			}
+		} finally {
+			bufferLock.writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	@Override
+	public void addAll(List<String> words, String location) {
+		if (words.isEmpty()) {
+			documents().add(location);
+			return;
+		}
+
+		// stem the words before taking any locks
+		StemCache stemmer = StemCache.getShared();
+		int document = documents().add(location);
+		String[] stems = new String[words.size()];
+		int position = 0;
+		for (String word : words) {
+			stems[position++] = stemmer.stem(word);
+		}
+
+		bufferLock.writeLock().lock();
+		try {
+			// count every word first, then take back the positions already indexed
+			this.addCount(document, stems.length);
+
+			InvertedIndex buffer = state.buffer;
+			int duplicates = 0;
+			for (int i = 0; i < stems.length; i++) {
+				if (!buffer.addPosition(stems[i], document, i + 1) || this.sealed(stems[i], document, i + 1)) {
+					duplicates++;
+				}
+			}
+
+			if (duplicates > 0) {
+				this.addCount(document, -duplicates);
+			}
+			buffered += stems.length - duplicates;
+			this.sealIfFull();
+		} finally {
+			bufferLock.writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	@Override
+	public void addAll(InvertedIndex other) {
+		SortedMap<String, TreeMap<Integer, PositionList>> postings = other.postings();
+		int positions = 0;
+		for (TreeMap<Integer, PositionList> documents : postings.values()) {
+			for (PositionList list : documents.values()) {
+				positions += list.size();
+			}
+		}
+
+		countLock.writeLock().lock();
+		try {
+			this.addWordCounts(other);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+
+		bufferLock.writeLock().lock();
+		try {
+			state.buffer.addWords(other, postings.keySet());
+			buffered += positions;
+			this.sealIfFull();
+		} finally {
+			bufferLock.writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	/**
+	 * Not supported, since sealed segments are never changed
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void removeAll(Collection<String> locations) {
+		throw new UnsupportedOperationException("A segmented index cannot remove documents.");
+	}
+
+	/*
+	 * Methods for word count
+	 */
+
+	/**
+	 * Helper function that adds to the word count of a document while holding the
+	 * word count lock
+	 *
+	 * @param document the document id
+	 * @param count    the amount to add, negative to take back
+	 */
+	private void addCount(int document, int count) {
+		countLock.writeLock().lock();
+		try {
+			this.addToWordCount(document, count);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsWordCount(String location) {
+		countLock.readLock().lock();
+		try {
+			return super.containsWordCount(location);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Integer getWordCount(String location) {
+		countLock.readLock().lock();
+		try {
+			return super.getWordCount(location);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void writeWordCount(Path countPath) throws IOException {
+		countLock.readLock().lock();
+		try {
+			super.writeWordCount(countPath);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Methods for segments
+	 */
+
+	/**
+	 * Helper function that checks if a position is already in a sealed segment,
+	 * call only while holding the buffer lock for writing
+	 *
+	 * @param stem     the stemmed word
+	 * @param document the document id
+	 * @param value    the position
+	 * @return {@code true} if a segment has the position
+	 */
+	private boolean sealed(String stem, int document, int value) {
+		if (document >= sealedDocuments) {
+			// the document was added after the last seal, so no segment has it
+			return false;
+		}
+		for (Segment segment : state.segments) {
+			PositionList positions = segment.positions(stem, document);
+			if (positions != null && positions.contains(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Helper function that seals the buffer into a segment once it is full, call
+	 * only while holding the buffer lock for writing
+	 */
+	private void sealIfFull() {
+		if (buffered < bufferSize) {
+			return;
+		}
+		State current = state;
+		List<Segment> segments = new ArrayList<>(current.segments);
+		segments.add(new Segment(current.buffer.postings()));
+		state = new State(Collections.unmodifiableList(segments), new InvertedIndex(documents()));
+		buffered = 0;
+		sealedDocuments = documents().size();
+		this.mergeInBackground();
+	}
+
+	/**
+	 * Helper function that wakes up the merger, starting it if needed
+	 */
+	private synchronized void mergeInBackground() {
+		if (closed) {
+			return;
+		}
+		pending = true;
+		if (merger == null) {
+			merger = new Thread(this::mergeLoop, "SegmentMerger");
+			merger.setDaemon(true);
+			merger.start();
+		} else {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Helper function run by the merger, merging full tiers until closed
+	 */
+	private void mergeLoop() {
+		while (true) {
+			synchronized (this) {
+				while (!pending && !closed) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+				pending = false;
+			}
+
+			for (List<Segment> tier = this.fullTier(state.segments); tier != null; tier = this.fullTier(state.segments)) {
+				// built without any lock, only the swap is locked
+				Segment merged = Segment.merge(tier, documents().comparator());
+				bufferLock.writeLock().lock();
+				try {
+					State current = state;
+					List<Segment> segments = new ArrayList<>(current.segments.size());
+					for (Segment segment : current.segments) {
+						if (!tier.contains(segment)) {
+							segments.add(segment);
+						}
+					}
+					segments.add(merged);
+					state = new State(Collections.unmodifiableList(segments), current.buffer);
+				} finally {
+					bufferLock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper function that finds the smallest tier holding enough segments to be
+	 * merged
+	 *
+	 * @param segments the segments
+	 * @return the segments to merge, or null if no tier is full
+	 */
+	private List<Segment> fullTier(List<Segment> segments) {
+		TreeMap<Integer, List<Segment>> tiers = new TreeMap<>();
+		for (Segment segment : segments) {
+			int tier = 0;
+			for (long limit = (long) bufferSize * MERGE_FACTOR; segment.size >= limit; limit *= MERGE_FACTOR) {
+				tier++;
+			}
+			List<Segment> members = tiers.computeIfAbsent(tier, key -> new ArrayList<>());
+			members.add(segment);
+			if (members.size() == MERGE_FACTOR) {
+				return members;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Helper function that puts together the postings of a word from every
+	 * segment and the buffer
+	 *
+	 * @param word    the word
+	 * @param current the segments and buffer to read
+	 * @return the document ids in location order mapped to their positions
+	 */
+	private TreeMap<Integer, PositionList> gather(String word, State current) {
+		TreeMap<Integer, PositionList> postings = new TreeMap<>(documents().comparator());
+		for (Segment segment : current.segments) {
+			int index = Arrays.binarySearch(segment.words, word);
+			if (index >= 0) {
+				for (int i = 0; i < segment.documents[index].length; i++) {
+					union(postings, segment.documents[index][i], segment.positions[index][i]);
+				}
+			}
+		}
+		bufferLock.readLock().lock();
+		try {
+			TreeMap<Integer, PositionList> buffered = current.buffer.postings().get(word);
+			if (buffered != null) {
+				for (Map.Entry<Integer, PositionList> posting : buffered.entrySet()) {
+					// copied, since the buffer keeps changing
+					union(postings, posting.getKey(), copy(posting.getValue()));
+				}
+			}
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+		return postings;
+	}
+
+	/**
+	 * Helper function that puts together the positions of a word in a document
+	 *
+	 * @param word     the word
+	 * @param location the location of the document
+	 * @return the positions, or null if the word is not in the document
+	 */
+	private PositionList positions(String word, String location) {
+		int document = documents().get(location);
+		return document < 0 ? null : this.gather(word, state).get(document);
+	}
+
+	/**
+	 * Helper function that puts the postings of every segment and the buffer
+	 * together in one map
+	 *
+	 * @param current the segments and buffer to read
+	 * @return the words mapped to document ids mapped to positions
+	 */
+	private TreeMap<String, TreeMap<Integer, PositionList>> merged(State current) {
+		TreeMap<String, TreeMap<Integer, PositionList>> merged = new TreeMap<>();
+		Comparator<Integer> comparator = documents().comparator();
+		for (Segment segment : current.segments) {
+			segment.addTo(merged, comparator);
+		}
+		bufferLock.readLock().lock();
+		try {
+			for (Map.Entry<String, TreeMap<Integer, PositionList>> word : current.buffer.postings().entrySet()) {
+				TreeMap<Integer, PositionList> postings = merged.computeIfAbsent(word.getKey(),
+						key -> new TreeMap<>(comparator));
+				for (Map.Entry<Integer, PositionList> posting : word.getValue().entrySet()) {
+					union(postings, posting.getKey(), copy(posting.getValue()));
+				}
+			}
+		} finally {
+			bufferLock.readLock().unlock();
+		}
+		return merged;
+	}
+
+	/**
+	 * Helper function that adds the positions of a document to the postings of a
+	 * word, without changing any list already there
+	 *
+	 * @param postings  the postings of the word
+	 * @param document  the document id
+	 * @param positions the positions to add
+	 */
+	private static void union(TreeMap<Integer, PositionList> postings, int document, PositionList positions) {
+		PositionList existing = postings.putIfAbsent(document, positions);
+		if (existing != null) {
+			PositionList union = copy(existing);
+			union.addAll(positions);
+			postings.put(document, union);
+		}
+	}
+
+	/**
+	 * Helper function that copies a position list
+	 *
+	 * @param positions the positions
+	 * @return the copy
+	 */
+	private static PositionList copy(PositionList positions) {
+		PositionList copy = new PositionList();
+		copy.addAll(positions);
+		return copy;
+	}
+
+	/**
+	 * The sealed segments and the buffer new positions go into. A state is never
+	 * changed, a new one is published instead.
+	 */
+	private static class State {
+		/** the sealed segments */
+		private final List<Segment> segments;
+
+		/** the buffer */
+		private final InvertedIndex buffer;
+
+		/**
+		 * constructor for state
+		 *
+		 * @param segments the sealed segments, which must not change
+		 * @param buffer   the buffer
+		 */
+		private State(List<Segment> segments, InvertedIndex buffer) {
+			this.segments = segments;
+			this.buffer = buffer;
+		}
+	}
+
+	/**
+	 * An immutable part of the index, stored as sorted arrays
+	 */
+	private static class Segment {
+		/** the words, sorted */
+		private final String[] words;
+
+		/** the document ids of every word, in location order */
+		private final int[][] documents;
+
+		/** the positions of every word in every document */
+		private final PositionList[][] positions;
+
+		/** the number of positions in the segment */
+		private final long size;
+
+		/**
+		 * constructor for segment
+		 *
+		 * @param postings the words mapped to document ids mapped to positions, in
+		 *                 order, which must not change afterwards
+		 */
+		private Segment(SortedMap<String, TreeMap<Integer, PositionList>> postings) {
+			this.words = new String[postings.size()];
+			this.documents = new int[words.length][];
+			this.positions = new PositionList[words.length][];
+			long total = 0;
+			int index = 0;
+			for (Map.Entry<String, TreeMap<Integer, PositionList>> word : postings.entrySet()) {
+				words[index] = word.getKey();
+				documents[index] = new int[word.getValue().size()];
+				positions[index] = new PositionList[documents[index].length];
+				int i = 0;
+				for (Map.Entry<Integer, PositionList> posting : word.getValue().entrySet()) {
+					documents[index][i] = posting.getKey();
+					positions[index][i] = posting.getValue();
+					total += posting.getValue().size();
+					i++;
+				}
+				index++;
+			}
+			this.size = total;
+		}
+
+		/**
+		 * merges segments into one
+		 *
+		 * @param segments   the segments to merge
+		 * @param comparator orders document ids by location
+		 * @return the merged segment
+		 */
+		private static Segment merge(List<Segment> segments, Comparator<Integer> comparator) {
+			TreeMap<String, TreeMap<Integer, PositionList>> merged = new TreeMap<>();
+			for (Segment segment : segments) {
+				segment.addTo(merged, comparator);
+			}
+			return new Segment(merged);
+		}
+
+		/**
+		 * adds the postings of the segment to a map, without changing any list
+		 * already there
+		 *
+		 * @param merged     the words mapped to document ids mapped to positions
+		 * @param comparator orders document ids by location
+		 */
+		private void addTo(TreeMap<String, TreeMap<Integer, PositionList>> merged, Comparator<Integer> comparator) {
+			for (int index = 0; index < words.length; index++) {
+				TreeMap<Integer, PositionList> postings = merged.computeIfAbsent(words[index],
+						key -> new TreeMap<>(comparator));
+				for (int i = 0; i < documents[index].length; i++) {
+					union(postings, documents[index][i], positions[index][i]);
+				}
+			}
+		}
+
+		/**
+		 * finds the words starting with a prefix
+		 *
+		 * @param prefix the start of the words
+		 * @param found  where the words go
+		 */
+		private void findWords(String prefix, Collection<String> found) {
+			int index = Arrays.binarySearch(words, prefix);
+			for (int i = index < 0 ? -index - 1 : index; i < words.length && words[i].startsWith(prefix); i++) {
+				found.add(words[i]);
+			}
+		}
+
+		/**
+		 * adds the matches of a word in every document
+		 *
+		 * @param word    the word
+		 * @param matches the matches so far
+		 */
+		private void collect(String word, Matches matches) {
+			int index = Arrays.binarySearch(words, word);
+			if (index >= 0) {
+				for (int i = 0; i < documents[index].length; i++) {
+					matches.add(documents[index][i], positions[index][i].size());
+				}
+			}
+		}
+
+		/**
+		 * gets the positions of a word in a document
+		 *
+		 * @param word     the word
+		 * @param document the document id
+		 * @return the positions, or null if the word is not in the document
+		 */
+		private PositionList positions(String word, int document) {
+			int index = Arrays.binarySearch(words, word);
+			if (index >= 0) {
+				for (int i = 0; i < documents[index].length; i++) {
+					if (documents[index][i] == document) {
+						return positions[index][i];
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,542 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A thread safe inverted index that splits the words into shards by the hash
+ * of their stem. Every shard has its own lock, so adding and searching words
+ * in different shards can happen at the same time. The shards share one table
+ * of document ids, and the word counts are kept separately behind their own
+ * lock.
+ *
+ * Word counts are always added before the positions they count, so a search
+ * running at the same time never sees a position without its word count.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class ShardedInvertedIndex extends ThreadSafeInvertedIndex {
+
+	/** The default number of shards. */
+	public static final int DEFAULT_SHARDS = 16;
+
+	/** the shards, each holding the words whose hash picks it */
+	private final InvertedIndex[] shards;
+
+	/** the locks protecting each shard */
+	private final ReadWriteLock[] locks;
+
+	/** the lock protecting the word counts */
+	private final ReadWriteLock countLock;
+
+	/**
+	 * constructor for a sharded index with the default number of shards
+	 */
+	public ShardedInvertedIndex() {
+		this(DEFAULT_SHARDS);
+	}
+
+	/**
+	 * constructor for a sharded index
+	 *
+	 * @param shards the number of shards, at least 1
+	 */
+	public ShardedInvertedIndex(int shards) {
+		super();
+		if (shards < 1) {
+			throw new IllegalArgumentException("There must be at least one shard.");
+		}
+		this.shards = new InvertedIndex[shards];
+		this.locks = new ReadWriteLock[shards];
+		for (int i = 0; i < shards; i++) {
+			this.shards[i] = new InvertedIndex(documents());
+			this.locks[i] = new ReadWriteLock();
+		}
+		this.countLock = new ReadWriteLock();
+	}
+
+	/**
+	 * Helper function that picks the shard of a word
+	 *
+	 * @param word the stemmed word
+	 * @return the index of its shard
+	 */
+	private int shard(String word) {
+		return Math.floorMod(word.hashCode(), shards.length);
+	}
+
+	/**
+	 * Helper function that locks every shard for reading, always in the same order
+	 */
+	private void readLockAll() {
+		for (ReadWriteLock lock : locks) {
+			lock.readLock().lock();
+		}
+	}
+
+	/**
+	 * Helper function that unlocks every shard locked by {@link #readLockAll()}
+	 */
+	private void readUnlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--) {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Helper function that puts the postings of every shard together in one map,
+	 * call only while every shard is locked
+	 *
+	 * @return the words mapped to document ids mapped to positions
+	 */
+	private TreeMap<String, TreeMap<Integer, PositionList>> merged() {
+		TreeMap<String, TreeMap<Integer, PositionList>> merged = new TreeMap<>();
+		for (InvertedIndex shard : shards) {
+			merged.putAll(shard.postings());
+		}
+		return merged;
+	}
+
+	/*
+	 * Methods for index
+	 */
+
+	@Override
+	public Collection<String> getWords() {
+		TreeSet<String> words = new TreeSet<>();
+		for (int i = 0; i < shards.length; i++) {
+			locks[i].readLock().lock();
+			try {
+				words.addAll(shards[i].getWords());
+			} finally {
+				locks[i].readLock().unlock();
+			}
+		}
+		return Collections.unmodifiableCollection(words);
+	}
+
+	@Override
+	public Collection<String> getLocations(String key) {
+		int i = shard(key);
+		locks[i].readLock().lock();
+		try {
+			return Collections.unmodifiableCollection(new ArrayList<>(shards[i].getLocations(key)));
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public Collection<Integer> getPositions(String outerKey, String innerKey) {
+		int i = shard(outerKey);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].getPositions(outerKey, innerKey);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsWord(String key) {
+		int i = shard(key);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].containsWord(key);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsLocation(String outerKey, String innerKey) {
+		int i = shard(outerKey);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].containsLocation(outerKey, innerKey);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsPosition(String outerKey, String innerKey, Integer value) {
+		int i = shard(outerKey);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].containsPosition(outerKey, innerKey, value);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public int sizeWords() {
+		int size = 0;
+		for (int i = 0; i < shards.length; i++) {
+			locks[i].readLock().lock();
+			try {
+				size += shards[i].sizeWords();
+			} finally {
+				locks[i].readLock().unlock();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public int sizeLocations(String key) {
+		int i = shard(key);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].sizeLocations(key);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public int sizePositions(String outerKey, String innerKey) {
+		int i = shard(outerKey);
+		locks[i].readLock().lock();
+		try {
+			return shards[i].sizePositions(outerKey, innerKey);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		readLockAll();
+		try {
+			return merged().toString();
+		} finally {
+			readUnlockAll();
+		}
+	}
+
+	@Override
+	public void indexWriter(Path filename) throws IOException {
+		readLockAll();
+		try {
+			SimpleJsonWriter.asNestedArray(merged(), documents(), filename);
+		} finally {
+			readUnlockAll();
+		}
+	}
+
+	@Override
+	public void binaryWriter(Path filename) throws IOException {
+		readLockAll();
+		countLock.readLock().lock();
+		try {
+			IndexFile.write(merged(), documents(), super.wordCounts(), filename);
+		} finally {
+			countLock.readLock().unlock();
+			readUnlockAll();
+		}
+	}
+
+	@Override
+	public void binaryReader(Path filename) throws IOException {
+		IndexFile.read(filename, this);
+	}
+
+	@Override
+	SortedMap<String, TreeMap<Integer, PositionList>> postings() {
+		readLockAll();
+		try {
+			return Collections.unmodifiableSortedMap(this.merged());
+		} finally {
+			readUnlockAll();
+		}
+	}
+
+	@Override
+	int[] wordCounts() {
+		countLock.readLock().lock();
+		try {
+			return super.wordCounts().clone();
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	int addDocument(String location, int count) {
+		countLock.writeLock().lock();
+		try {
+			return super.addDocument(location, count);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	void addPositions(String stem, int document, PositionList positions) {
+		int i = shard(stem);
+		locks[i].writeLock().lock();
+		try {
+			shards[i].addPositions(stem, document, positions);
+		} finally {
+			locks[i].writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries) {
+		return this.top(this.exactMatches(queries), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries, int limit) {
+		return this.top(this.exactMatches(queries), limit);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries) {
+		return this.top(this.partialMatches(queries), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries, int limit) {
+		return this.top(this.partialMatches(queries), limit);
+	}
+
+	@Override
+	Matches partialMatches(Set<String> queries) {
+		Matches matches = new Matches(documents().size());
+		TreeSet<String> words = new TreeSet<>();
+
+		for (String query : queries) {
+			// the words of every shard are needed to keep them in order
+			words.clear();
+			for (int i = 0; i < shards.length; i++) {
+				locks[i].readLock().lock();
+				try {
+					shards[i].findWords(query, words);
+				} finally {
+					locks[i].readLock().unlock();
+				}
+			}
+			for (String word : words) {
+				this.collect(word, matches);
+			}
+		}
+
+		return matches;
+	}
+
+	@Override
+	void collect(String word, Matches matches) {
+		int i = shard(word);
+		locks[i].readLock().lock();
+		try {
+			shards[i].collect(word, matches);
+		} finally {
+			locks[i].readLock().unlock();
+		}
+	}
+
+	@Override
+	List<Result> top(Matches matches, int limit) {
+		countLock.readLock().lock();
+		try {
+			return super.top(matches, limit);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void add(String outerKey, String innerKey, Integer value) {
+		String stem = StemCache.getShared().stem(outerKey);
+		int document = documents().add(innerKey);
+		int i = shard(stem);
+
+		locks[i].writeLock().lock();
+		try {
+			// count it first, so a search never finds the position without its count
+			this.addCount(document, 1);
+			if (!shards[i].addPosition(stem, document, value)) {
+				this.addCount(document, -1);
+			}
+		} finally {
+			locks[i].writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	@Override
+	public void addAll(List<String> words, String location) {
+		if (words.isEmpty()) {
+			documents().add(location);
+			return;
+		}
+
+		// stem and sort the words by shard before taking any locks
+		StemCache stemmer = StemCache.getShared();
+		int document = documents().add(location);
+		String[] stems = new String[words.size()];
+		int[] starts = new int[shards.length + 1];
+		int[] picked = new int[stems.length];
+		int position = 0;
+		for (String word : words) {
+			stems[position] = stemmer.stem(word);
+			picked[position] = shard(stems[position]);
+			starts[picked[position] + 1]++;
+			position++;
+		}
+		for (int i = 0; i < shards.length; i++) {
+			starts[i + 1] += starts[i];
+		}
+		int[] order = new int[stems.length];
+		int[] next = starts.clone();
+		for (int j = 0; j < stems.length; j++) {
+			order[next[picked[j]]++] = j;
+		}
+
+		// count every word first, then take back the positions already indexed
+		this.addCount(document, stems.length);
+
+		int duplicates = 0;
+		for (int i = 0; i < shards.length; i++) {
+			if (starts[i] == starts[i + 1]) {
+				continue;
+			}
+			locks[i].writeLock().lock();
+			try {
+				for (int k = starts[i]; k < starts[i + 1]; k++) {
+					if (!shards[i].addPosition(stems[order[k]], document, order[k] + 1)) {
+						duplicates++;
+					}
+				}
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+
+		if (duplicates > 0) {
+			this.addCount(document, -duplicates);
+		}
+		this.modified();
+	}
+
+	@Override
+	public void addAll(InvertedIndex other) {
+		// sort the words of the other index by shard before taking any locks
+		List<List<String>> picked = new ArrayList<>(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			picked.add(new ArrayList<>());
+		}
+		for (String word : other.postings().keySet()) {
+			picked.get(shard(word)).add(word);
+		}
+
+		countLock.writeLock().lock();
+		try {
+			this.addWordCounts(other);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+
+		for (int i = 0; i < shards.length; i++) {
+			if (picked.get(i).isEmpty()) {
+				continue;
+			}
+			locks[i].writeLock().lock();
+			try {
+				shards[i].addWords(other, picked.get(i));
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+		this.modified();
+	}
+
+	@Override
+	public void removeAll(Collection<String> locations) {
+		Set<Integer> removed = this.ids(locations);
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		// positions first, so a search never finds a position without its count
+		for (int i = 0; i < shards.length; i++) {
+			locks[i].writeLock().lock();
+			try {
+				shards[i].removeWords(removed);
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+
+		countLock.writeLock().lock();
+		try {
+			this.removeWordCounts(removed);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+		this.modified();
+	}
+
+	/*
+	 * Methods for word count
+	 */
+
+	/**
+	 * Helper function that adds to the word count of a document while holding the
+	 * word count lock
+	 *
+	 * @param document the document id
+	 * @param count    the amount to add, negative to take back
+	 */
+	private void addCount(int document, int count) {
+		countLock.writeLock().lock();
+		try {
+			this.addToWordCount(document, count);
+		} finally {
+			countLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsWordCount(String location) {
+		countLock.readLock().lock();
+		try {
+			return super.containsWordCount(location);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Integer getWordCount(String location) {
+		countLock.readLock().lock();
+		try {
+			return super.getWordCount(location);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void writeWordCount(Path countPath) throws IOException {
+		countLock.readLock().lock();
+		try {
+			super.writeWordCount(countPath);
+		} finally {
+			countLock.readLock().unlock();
+		}
+	}
+}
@@ -109,6 +109,38 @@ public class SimpleJsonWriter {
 
 	}
 
+	/**
+	 * Helps write the elements as a pretty JSON object with a nested array, where
+	 * the keys are document ids that are written as their locations.
+	 *
+	 * @param nested    the elements to write
+	 * @param documents the table used to convert document ids into locations
+	 * @param writer    the writer to use
+	 * @param level     the initial indent level
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void asNestedMap(Map<Integer, ? extends Collection<Integer>> nested, DocumentTable documents,
+			Writer writer, int level) throws IOException {
+		writer.write("{\n");
+		level++;
+		Iterator<Integer> idIterator = nested.keySet().iterator();
+		Integer idNext;
+		if (idIterator.hasNext()) {
+			idNext = idIterator.next();
+			indent("\"" + documents.get(idNext) + "\": ", writer, level);
+			asArray(nested.get(idNext), writer, level);
+		}
+		while (idIterator.hasNext()) {
+			writer.write(",\n");
+			idNext = idIterator.next();
+			indent("\"" + documents.get(idNext) + "\": ", writer, level);
+			asArray(nested.get(idNext), writer, level);
+		}
+		writer.write("\n");
+		level--;
+		indent("}", writer, level);
+	}
+
 	/**
 	 * Writes the elements as a pretty JSON object with a nested array. The generic
 	 * notation used allows this method to be used for any type of map with any type
@@ -140,6 +172,58 @@ public class SimpleJsonWriter {
 		writer.write("\n}");
 	}
 
+	/**
+	 * Writes the elements as a pretty JSON object with a nested array, where the
+	 * nested keys are document ids that are written as their locations.
+	 *
+	 * @param elements  the elements to write
+	 * @param documents the table used to convert document ids into locations
+	 * @param writer    the writer to use
+	 * @param level     the initial indent level
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void asNestedArray(Map<String, ? extends Map<Integer, ? extends Collection<Integer>>> elements,
+			DocumentTable documents, Writer writer, int level) throws IOException {
+		indent("{", writer, level);
+		level++;
+		String wordNext;
+		Iterator<String> wordIterator = elements.keySet().iterator();
+		if (wordIterator.hasNext()) {
+			writer.write("\n");
+			wordNext = wordIterator.next();
+			indent("\"" + wordNext + "\": ", writer, level);
+			asNestedMap(elements.get(wordNext), documents, writer, level);
+		}
+		while (wordIterator.hasNext()) {
+			writer.write(",\n");
+			wordNext = wordIterator.next();
+			indent("\"" + wordNext + "\": ", writer, level);
+			asNestedMap(elements.get(wordNext), documents, writer, level);
+		}
+		writer.write("\n}");
+	}
+
+	/**
+	 * Writes counts indexed by document id as a pretty JSON object, where the
+	 * document ids are written as their locations in sorted order. Documents with
+	 * a count of 0 are skipped.
+	 *
+	 * @param counts    the counts to write, indexed by document id
+	 * @param documents the table used to convert document ids into locations
+	 * @param writer    the writer to use
+	 * @param level     the initial indent level
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void asObject(int[] counts, DocumentTable documents, Writer writer, int level) throws IOException {
+		TreeMap<String, Integer> elements = new TreeMap<>();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] > 0) {
+				elements.put(documents.get(id), counts[id]);
+			}
+		}
+		asObject(elements, writer, level);
+	}
+
 	/**
 	 * Writes the elements as a pretty JSON array to file.
 	 *
@@ -186,6 +270,40 @@ public class SimpleJsonWriter {
 		}
 	}
 
+	/**
+	 * Writes counts indexed by document id as a pretty JSON object to file.
+	 *
+	 * @param counts    the counts to write, indexed by document id
+	 * @param documents the table used to convert document ids into locations
+	 * @param path      the file path to use
+	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #asObject(int[], DocumentTable, Writer, int)
+	 */
+	public static void asObject(int[] counts, DocumentTable documents, Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			asObject(counts, documents, writer, 0);
+		}
+	}
+
+	/**
+	 * Writes the elements as a nested pretty JSON object to file, where the nested
+	 * keys are document ids that are written as their locations.
+	 *
+	 * @param elements  the elements to write
+	 * @param documents the table used to convert document ids into locations
+	 * @param path      the file path to use
+	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #asNestedArray(Map, DocumentTable, Writer, int)
+	 */
+	public static void asNestedArray(Map<String, ? extends Map<Integer, ? extends Collection<Integer>>> elements,
+			DocumentTable documents, Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			asNestedArray(elements, documents, writer, 0);
+		}
+	}
+
 	/**
 	 * Returns the elements as a pretty JSON array.
 	 *
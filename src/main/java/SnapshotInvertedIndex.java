@@ -0,0 +1,788 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A thread safe inverted index whose readers never take a lock, so searches
+ * keep being answered at full speed while a crawl is adding pages. Every write
+ * is a new version of the index, and readers always see a single complete
+ * version, never part of a write.
+ *
+ * The postings of every word are only ever appended to. Every posting is
+ * stamped with the version of the write that added it, and adding more
+ * positions to a document that already has a posting appends a second posting
+ * with only the new positions. A write only becomes visible once it publishes
+ * its snapshot, which holds its version and the word counts of that version.
+ * A reader reads the current snapshot once and skips every posting stamped with
+ * a later version, so it keeps seeing the same version however many writes
+ * happen while it runs.
+ *
+ * The word counts are copied on write, unless the write only adds documents no
+ * snapshot can see yet. Writes are serialized with each other, but never wait
+ * for a reader.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class SnapshotInvertedIndex extends ThreadSafeInvertedIndex {
+
+	/** the postings of every word, including ones not visible yet */
+	private final ConcurrentSkipListMap<String, Postings> words;
+
+	/** the latest version readers can see */
+	private volatile Snapshot current;
+
+	/**
+	 * constructor for snapshot index
+	 */
+	public SnapshotInvertedIndex() {
+		super();
+		this.words = new ConcurrentSkipListMap<>();
+		this.current = new Snapshot(0, new int[0], 0);
+	}
+
+	/*
+	 * Methods for index
+	 */
+
+	@Override
+	public Collection<String> getWords() {
+		Snapshot snapshot = current;
+		List<String> visible = new ArrayList<>();
+		for (Map.Entry<String, Postings> entry : words.entrySet()) {
+			if (entry.getValue().visible(snapshot) > 0) {
+				visible.add(entry.getKey());
+			}
+		}
+		return Collections.unmodifiableList(visible);
+	}
+
+	@Override
+	public Collection<String> getLocations(String key) {
+		TreeSet<Integer> ids = this.documents(key, current);
+		if (ids == null) {
+			return Collections.emptySet();
+		}
+		List<String> locations = new ArrayList<>(ids.size());
+		for (int id : ids) {
+			locations.add(documents().get(id));
+		}
+		return Collections.unmodifiableList(locations);
+	}
+
+	@Override
+	public Collection<Integer> getPositions(String outerKey, String innerKey) {
+		PositionList positions = this.positions(outerKey, innerKey, current);
+		if (positions == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableCollection(positions);
+	}
+
+	@Override
+	public boolean containsWord(String key) {
+		Postings postings = words.get(key);
+		return postings != null && postings.visible(current) > 0;
+	}
+
+	@Override
+	public boolean containsLocation(String outerKey, String innerKey) {
+		return this.positions(outerKey, innerKey, current) != null;
+	}
+
+	@Override
+	public boolean containsPosition(String outerKey, String innerKey, Integer value) {
+		PositionList positions = this.positions(outerKey, innerKey, current);
+		return positions != null && positions.contains(value);
+	}
+
+	@Override
+	public int sizeWords() {
+		return this.getWords().size();
+	}
+
+	@Override
+	public int sizeLocations(String key) {
+		TreeSet<Integer> ids = this.documents(key, current);
+		return ids == null ? -1 : ids.size();
+	}
+
+	@Override
+	public int sizePositions(String outerKey, String innerKey) {
+		PositionList positions = this.positions(outerKey, innerKey, current);
+		return positions == null ? -1 : positions.size();
+	}
+
+	@Override
+	public String toString() {
+		return this.materialize(current).toString();
+	}
+
+	@Override
+	public void indexWriter(Path filename) throws IOException {
+		SimpleJsonWriter.asNestedArray(this.materialize(current), documents(), filename);
+	}
+
+	@Override
+	public void binaryWriter(Path filename) throws IOException {
+		Snapshot snapshot = current;
+		IndexFile.write(this.materialize(snapshot), documents(), snapshot.counts(), filename);
+	}
+
+	@Override
+	public void binaryReader(Path filename) throws IOException {
+		// loaded on the side, so the whole file becomes visible as one version
+		InvertedIndex loaded = new InvertedIndex();
+		IndexFile.read(filename, loaded);
+		this.addAll(loaded);
+	}
+
+	@Override
+	SortedMap<String, TreeMap<Integer, PositionList>> postings() {
+		return Collections.unmodifiableSortedMap(this.materialize(current));
+	}
+
+	@Override
+	int[] wordCounts() {
+		return current.counts();
+	}
+
+	@Override
+	int addDocument(String location, int count) {
+		Batch batch = new Batch(true);
+		batch.page(location).count += Math.max(count, 0);
+		this.commit(batch);
+		return documents().get(location);
+	}
+
+	@Override
+	void addPositions(String stem, int document, PositionList positions) {
+		Batch batch = new Batch(true);
+		batch.page(documents().get(document)).stems.put(stem, copy(positions));
+		this.commit(batch);
+	}
+
+	/*
+	 * Methods for search
+	 */
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries) {
+		return this.exactSearch(queries, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries) {
+		return this.partialSearch(queries, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Result> exactSearch(Set<String> queries, int limit) {
+		Snapshot snapshot = current;
+		Hits hits = new Hits(snapshot.documents);
+		for (String query : queries) {
+			this.collect(query, snapshot, hits);
+		}
+		return this.top(hits, snapshot, limit);
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries, int limit) {
+		Snapshot snapshot = current;
+		Hits hits = new Hits(snapshot.documents);
+		for (String query : queries) {
+			for (String word : words.tailMap(query).keySet()) {
+				if (!word.startsWith(query)) {
+					break;
+				}
+				this.collect(word, snapshot, hits);
+			}
+		}
+		return this.top(hits, snapshot, limit);
+	}
+
+	/*
+	 * Methods for adding
+	 */
+
+	@Override
+	public void add(String outerKey, String innerKey, Integer value) {
+		PositionList positions = new PositionList();
+		positions.add(value.intValue());
+		Batch batch = new Batch(false);
+		batch.page(innerKey).stems.put(StemCache.getShared().stem(outerKey), positions);
+		this.commit(batch);
+	}
+
+	@Override
+	public void addAll(List<String> words, String location) {
+		StemCache stemmer = StemCache.getShared();
+		Batch batch = new Batch(false);
+		Map<String, PositionList> stems = batch.page(location).stems;
+		int position = 0;
+		for (String word : words) {
+			position++;
+			stems.computeIfAbsent(stemmer.stem(word), key -> new PositionList()).add(position);
+		}
+		this.commit(batch);
+	}
+
+	@Override
+	public void addAll(InvertedIndex other) {
+		DocumentTable table = other.documents();
+		Batch batch = new Batch(true);
+		for (Map.Entry<String, TreeMap<Integer, PositionList>> word : other.postings().entrySet()) {
+			for (Map.Entry<Integer, PositionList> posting : word.getValue().entrySet()) {
+				batch.page(table.get(posting.getKey())).stems.put(word.getKey(), copy(posting.getValue()));
+			}
+		}
+		int[] counts = other.wordCounts();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] > 0) {
+				batch.page(table.get(id)).count += counts[id];
+			}
+		}
+		this.commit(batch);
+	}
+
+	/**
+	 * Not supported, since postings are only ever appended to
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void removeAll(Collection<String> locations) {
+		throw new UnsupportedOperationException("A snapshot index cannot remove documents.");
+	}
+
+	/*
+	 * Methods for word count
+	 */
+
+	@Override
+	public boolean containsWordCount(String location) {
+		return this.getWordCount(location) > 0;
+	}
+
+	@Override
+	public Integer getWordCount(String location) {
+		Snapshot snapshot = current;
+		int id = documents().get(location);
+		return id >= 0 && id < snapshot.documents && id < snapshot.counts.length ? snapshot.counts[id] : 0;
+	}
+
+	@Override
+	public void writeWordCount(Path countPath) throws IOException {
+		SimpleJsonWriter.asObject(current.counts(), documents(), countPath);
+	}
+
+	/*
+	 * Helper functions
+	 */
+
+	/**
+	 * Helper function that makes a write visible as a single new version. New
+	 * documents get their ids here, so every document an older snapshot cannot
+	 * see has an id past the documents of that snapshot.
+	 *
+	 * @param batch the write
+	 */
+	private synchronized void commit(Batch batch) {
+		if (batch.pages.isEmpty()) {
+			return;
+		}
+		Snapshot previous = current;
+		long version = previous.version + 1;
+		int[] counts = previous.counts;
+		boolean copied = false;
+
+		for (Map.Entry<String, Page> entry : batch.pages.entrySet()) {
+			Page page = entry.getValue();
+			int document = documents().add(entry.getKey());
+			boolean seen = document < previous.documents;
+			int added = 0;
+			for (Map.Entry<String, PositionList> stem : page.stems.entrySet()) {
+				Postings postings = words.computeIfAbsent(stem.getKey(), key -> new Postings());
+				PositionList positions = seen ? postings.missing(document, stem.getValue()) : stem.getValue();
+				if (positions.size() > 0) {
+					postings.append(document, version, positions);
+					added += positions.size();
+				}
+			}
+
+			int count = batch.counted ? page.count : added;
+			if (count > 0) {
+				if (document >= counts.length) {
+					counts = Arrays.copyOf(counts, Math.max(document + 1, counts.length * 2));
+					copied = true;
+				} else if (seen && !copied) {
+					// an older snapshot can see this count, so it must not change
+					counts = counts.clone();
+					copied = true;
+				}
+				counts[document] += count;
+			}
+		}
+
+		current = new Snapshot(version, counts, documents().size());
+		this.modified();
+	}
+
+	/**
+	 * Helper function that adds the matches of a word in every document. The
+	 * documents found first by this word are added in location order, the same
+	 * order the other indexes find them in.
+	 *
+	 * @param word     the word we are looking for
+	 * @param snapshot the version being searched
+	 * @param hits     the matches so far
+	 */
+	private void collect(String word, Snapshot snapshot, Hits hits) {
+		Postings postings = words.get(word);
+		if (postings == null) {
+			return;
+		}
+		int size = postings.visible(snapshot);
+		Block block = postings.block;
+		List<Integer> found = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			int document = block.documents[i];
+			if (hits.add(document, block.positions[i].size())) {
+				found.add(document);
+			}
+		}
+		found.sort(documents().comparator());
+		for (int document : found) {
+			hits.found(document);
+		}
+	}
+
+	/**
+	 * Helper function that scores the matches and sorts the best results, the
+	 * same way {@link InvertedIndex} does but with the word counts of the
+	 * snapshot
+	 *
+	 * @param hits     the matches found
+	 * @param snapshot the version being searched
+	 * @param limit    the most results to return
+	 * @return a list of at most limit results, in order
+	 */
+	private List<Result> top(Hits hits, Snapshot snapshot, int limit) {
+		if (limit >= hits.size) {
+			List<Result> results = new ArrayList<>(hits.size);
+			for (int i = 0; i < hits.size; i++) {
+				results.add(new Hit(hits.found[i], hits.counts[hits.found[i]], snapshot));
+			}
+			Collections.sort(results);
+			return results;
+		}
+
+		if (limit <= 0) {
+			return new ArrayList<>();
+		}
+
+		// the head of the heap is the worst result kept so far
+		PriorityQueue<Result> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		for (int i = 0; i < hits.size; i++) {
+			Result result = new Hit(hits.found[i], hits.counts[hits.found[i]], snapshot);
+			if (heap.size() < limit) {
+				heap.add(result);
+			} else if (result.compareTo(heap.peek()) < 0) {
+				heap.poll();
+				heap.add(result);
+			}
+		}
+
+		List<Result> results = new ArrayList<>(heap);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Helper function that finds the documents a word is in
+	 *
+	 * @param word     the word
+	 * @param snapshot the version being read
+	 * @return the document ids in location order, or null if the word is not in
+	 *         the snapshot
+	 */
+	private TreeSet<Integer> documents(String word, Snapshot snapshot) {
+		Postings postings = words.get(word);
+		int size = postings == null ? 0 : postings.visible(snapshot);
+		if (size == 0) {
+			return null;
+		}
+		Block block = postings.block;
+		TreeSet<Integer> ids = new TreeSet<>(documents().comparator());
+		for (int i = 0; i < size; i++) {
+			ids.add(block.documents[i]);
+		}
+		return ids;
+	}
+
+	/**
+	 * Helper function that puts together the positions of a word in a document
+	 *
+	 * @param word     the word
+	 * @param location the location of the document
+	 * @param snapshot the version being read
+	 * @return the positions, or null if the word is not in the document
+	 */
+	private PositionList positions(String word, String location, Snapshot snapshot) {
+		int document = documents().get(location);
+		Postings postings = words.get(word);
+		if (document < 0 || postings == null) {
+			return null;
+		}
+		return postings.positions(document, postings.visible(snapshot));
+	}
+
+	/**
+	 * Helper function that puts the postings of a snapshot together in one map
+	 *
+	 * @param snapshot the version being read
+	 * @return the words mapped to document ids mapped to positions
+	 */
+	private TreeMap<String, TreeMap<Integer, PositionList>> materialize(Snapshot snapshot) {
+		TreeMap<String, TreeMap<Integer, PositionList>> index = new TreeMap<>();
+		for (Map.Entry<String, Postings> entry : words.entrySet()) {
+			Postings postings = entry.getValue();
+			int size = postings.visible(snapshot);
+			if (size == 0) {
+				continue;
+			}
+			Block block = postings.block;
+			TreeMap<Integer, PositionList> documents = new TreeMap<>(documents().comparator());
+			for (int i = 0; i < size; i++) {
+				documents.computeIfAbsent(block.documents[i], key -> new PositionList()).addAll(block.positions[i]);
+			}
+			index.put(entry.getKey(), documents);
+		}
+		return index;
+	}
+
+	/**
+	 * Helper function that copies a position list, so it cannot change once it
+	 * is visible
+	 *
+	 * @param positions the positions
+	 * @return the copy
+	 */
+	private static PositionList copy(PositionList positions) {
+		PositionList copy = new PositionList();
+		copy.addAll(positions);
+		return copy;
+	}
+
+	/**
+	 * A version of the index that readers can see
+	 */
+	private static class Snapshot {
+		/** the version */
+		private final long version;
+
+		/** the word counts, only valid for ids below the number of documents */
+		private final int[] counts;
+
+		/** the number of documents */
+		private final int documents;
+
+		/**
+		 * constructor for snapshot
+		 *
+		 * @param version   the version
+		 * @param counts    the word counts, indexed by document id
+		 * @param documents the number of documents
+		 */
+		private Snapshot(long version, int[] counts, int documents) {
+			this.version = version;
+			this.counts = counts;
+			this.documents = documents;
+		}
+
+		/**
+		 * gets a copy of the word counts of the documents in the snapshot
+		 *
+		 * @return the word counts, indexed by document id
+		 */
+		private int[] counts() {
+			return Arrays.copyOf(counts, Math.min(counts.length, documents));
+		}
+	}
+
+	/**
+	 * The postings of a single word, which are only ever appended to. A posting
+	 * is written before the size is raised past it, so readers that read the size
+	 * first only ever read complete postings.
+	 */
+	private static class Postings {
+		/** the postings, replaced with a larger copy when full */
+		private volatile Block block;
+
+		/** the number of postings */
+		private volatile int size;
+
+		/**
+		 * constructor for postings
+		 */
+		private Postings() {
+			this.block = new Block(2);
+			this.size = 0;
+		}
+
+		/**
+		 * appends a posting, call only while committing
+		 *
+		 * @param document  the document id
+		 * @param version   the version adding it
+		 * @param positions the positions, which must not change afterwards
+		 */
+		private void append(int document, long version, PositionList positions) {
+			Block full = block;
+			if (size == full.documents.length) {
+				Block grown = new Block(size * 2);
+				System.arraycopy(full.documents, 0, grown.documents, 0, size);
+				System.arraycopy(full.versions, 0, grown.versions, 0, size);
+				System.arraycopy(full.positions, 0, grown.positions, 0, size);
+				block = grown;
+			}
+			Block target = block;
+			target.documents[size] = document;
+			target.versions[size] = version;
+			target.positions[size] = positions;
+			size++;
+		}
+
+		/**
+		 * gets the number of postings a snapshot can see, which always come first
+		 * since versions only go up
+		 *
+		 * @param snapshot the snapshot
+		 * @return the number of visible postings
+		 */
+		private int visible(Snapshot snapshot) {
+			int visible = size;
+			long[] versions = block.versions;
+			while (visible > 0 && versions[visible - 1] > snapshot.version) {
+				visible--;
+			}
+			return visible;
+		}
+
+		/**
+		 * puts together every position of a document in the first postings
+		 *
+		 * @param document the document id
+		 * @param size     the number of postings to look at
+		 * @return the positions, or null if there are none
+		 */
+		private PositionList positions(int document, int size) {
+			Block current = block;
+			PositionList positions = null;
+			for (int i = 0; i < size; i++) {
+				if (current.documents[i] == document) {
+					if (positions == null) {
+						positions = new PositionList();
+					}
+					positions.addAll(current.positions[i]);
+				}
+			}
+			return positions;
+		}
+
+		/**
+		 * finds the positions of a document that are not posted yet, call only
+		 * while committing
+		 *
+		 * @param document  the document id
+		 * @param positions the positions to add
+		 * @return the positions not posted yet
+		 */
+		private PositionList missing(int document, PositionList positions) {
+			PositionList existing = this.positions(document, size);
+			if (existing == null) {
+				return positions;
+			}
+			PositionList missing = new PositionList();
+			for (int position : positions.toIntArray()) {
+				if (!existing.contains(position)) {
+					missing.add(position);
+				}
+			}
+			return missing;
+		}
+	}
+
+	/**
+	 * The arrays holding the postings of a word
+	 */
+	private static class Block {
+		/** the document id of every posting */
+		private final int[] documents;
+
+		/** the version that added every posting */
+		private final long[] versions;
+
+		/** the positions of every posting */
+		private final PositionList[] positions;
+
+		/**
+		 * constructor for block
+		 *
+		 * @param capacity the number of postings it holds
+		 */
+		private Block(int capacity) {
+			this.documents = new int[capacity];
+			this.versions = new long[capacity];
+			this.positions = new PositionList[capacity];
+		}
+	}
+
+	/**
+	 * A single write, built before committing so the lock is only held while
+	 * adding it
+	 */
+	private static class Batch {
+		/** the pages written, by location */
+		private final Map<String, Page> pages;
+
+		/**
+		 * {@code true} if the word counts are given, {@code false} to count the new
+		 * positions
+		 */
+		private final boolean counted;
+
+		/**
+		 * constructor for batch
+		 *
+		 * @param counted {@code true} if the word counts are given
+		 */
+		private Batch(boolean counted) {
+			this.pages = new LinkedHashMap<>();
+			this.counted = counted;
+		}
+
+		/**
+		 * gets the page for a location, adding it if needed
+		 *
+		 * @param location the location
+		 * @return the page
+		 */
+		private Page page(String location) {
+			return pages.computeIfAbsent(location, key -> new Page());
+		}
+	}
+
+	/**
+	 * The part of a write for a single document
+	 */
+	private static class Page {
+		/** the positions of every stem */
+		private final Map<String, PositionList> stems = new HashMap<>();
+
+		/** the word count to add, if given */
+		private int count = 0;
+	}
+
+	/**
+	 * Stores the number of matches found in each document while searching, in the
+	 * order the documents were first found
+	 */
+	private static class Hits {
+		/** the number of matches, indexed by document id */
+		private int[] counts;
+
+		/** the document ids with matches, in the order they were found */
+		private int[] found;
+
+		/** the number of documents found */
+		private int size;
+
+		/**
+		 * constructor for hits
+		 *
+		 * @param documents the expected number of documents
+		 */
+		private Hits(int documents) {
+			this.counts = new int[Math.max(documents, 1)];
+			this.found = new int[16];
+			this.size = 0;
+		}
+
+		/**
+		 * adds matches in a document
+		 *
+		 * @param document the document id
+		 * @param matches  the number of positions that matched
+		 * @return {@code true} if the document had no matches before
+		 */
+		private boolean add(int document, int matches) {
+			if (document >= counts.length) {
+				counts = Arrays.copyOf(counts, Math.max(document + 1, counts.length * 2));
+			}
+			boolean first = counts[document] == 0;
+			counts[document] += matches;
+			return first;
+		}
+
+		/**
+		 * records a document as found, after the ones found before it
+		 *
+		 * @param document the document id
+		 */
+		private void found(int document) {
+			if (size == found.length) {
+				found = Arrays.copyOf(found, size * 2);
+			}
+			found[size++] = document;
+		}
+	}
+
+	/**
+	 * A result scored with the word counts of a snapshot
+	 */
+	private class Hit extends Result {
+		/** the amount of hits it found */
+		private final int count;
+
+		/** the hits divided by the word count */
+		private final Double score;
+
+		/**
+		 * constructor for hit
+		 *
+		 * @param document the document id of the location
+		 * @param count    the amount of hits
+		 * @param snapshot the version searched
+		 */
+		private Hit(int document, int count, Snapshot snapshot) {
+			super(document);
+			this.count = count;
+			this.score = count / (double) (document < snapshot.counts.length ? snapshot.counts[document] : 0);
+		}
+
+		@Override
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public Double getScore() {
+			return score;
+		}
+	}
+}
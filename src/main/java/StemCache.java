@@ -0,0 +1,141 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * A bounded, thread-safe {@link Stemmer} that remembers the stem of every word
+ * it has seen. Natural language repeats the same words over and over, so most
+ * words are stemmed once and then looked up. Each thread gets its own
+ * {@link SnowballStemmer} since those are not thread-safe. When the cache
+ * reaches its capacity it is cleared and starts filling again.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ */
+public class StemCache implements Stemmer {
+
+	/** The default number of words to remember. */
+	public static final int DEFAULT_CAPACITY = 100_000;
+
+	/** The cache shared by the index, the text stemmer and the searches. */
+	private static final StemCache SHARED = new StemCache(InvertedIndex.DEFAULT, DEFAULT_CAPACITY);
+
+	/** maps a word to its stem */
+	private final ConcurrentHashMap<String, String> stems;
+
+	/** a stemmer for every thread using the cache */
+	private final ThreadLocal<Stemmer> stemmers;
+
+	/** the max number of words to remember */
+	private final int capacity;
+
+	/** the number of words found in the cache */
+	private final LongAdder hits;
+
+	/** the number of words that had to be stemmed */
+	private final LongAdder misses;
+
+	/**
+	 * Constructor for stem cache
+	 *
+	 * @param algorithm the stemmer algorithm to use
+	 * @param capacity  the max number of words to remember
+	 */
+	public StemCache(SnowballStemmer.ALGORITHM algorithm, int capacity) {
+		this.stems = new ConcurrentHashMap<>();
+		this.stemmers = ThreadLocal.withInitial(() -> new SnowballStemmer(algorithm));
+		this.capacity = Math.max(capacity, 1);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	/**
+	 * gets the cache shared by the whole program
+	 *
+	 * @return the shared stem cache
+	 */
+	public static StemCache getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * stems a single word, using the remembered stem if there is one
+	 *
+	 * @param word the word to stem
+	 * @return the stem of the word
+	 */
+	public String stem(String word) {
+		String stem = stems.get(word);
+		if (stem != null) {
+			hits.increment();
+			return stem;
+		}
+		misses.increment();
+		stem = stemmers.get().stem(word).toString();
+		if (stems.size() >= capacity) {
+			stems.clear();
+		}
+		stems.put(word, stem);
+		return stem;
+	}
+
+	@Override
+	public CharSequence stem(CharSequence word) {
+		return stem(word.toString());
+	}
+
+	/**
+	 * gets the number of words found in the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * gets the number of words that had to be stemmed
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * gets the fraction of words found in the cache
+	 *
+	 * @return the hit rate between 0 and 1
+	 */
+	public double getHitRate() {
+		long hit = getHits();
+		long total = hit + getMisses();
+		return total == 0 ? 0 : hit / (double) total;
+	}
+
+	/**
+	 * gets the number of words remembered
+	 *
+	 * @return the size of the cache
+	 */
+	public int size() {
+		return stems.size();
+	}
+
+	/**
+	 * forgets every remembered word and resets the counters
+	 */
+	public void clear() {
+		stems.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d stems, %d hits, %d misses", size(), getHits(), getMisses());
+	}
+}
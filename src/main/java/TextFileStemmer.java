@@ -32,12 +32,10 @@ public class TextFileStemmer {
 	 * @param stems   the mutable collection we will edit
 	 *
 	 * @see Stemmer#stem(CharSequence)
-	 * @see TextParser#parse(String)
+	 * @see TextParser#parse(CharSequence, java.util.function.Consumer)
 	 */
 	public static void stemLine(String line, Stemmer stemmer, Collection<String> stems) {
-		for (String word : TextParser.parse(line)) {
-			stems.add(stemmer.stem(word).toString());
-		}
+		TextParser.parse(line, word -> stems.add(stemmer.stem(word).toString()));
 	}
 
 	/**
@@ -82,7 +80,7 @@ public class TextFileStemmer {
 	 */
 	public static void stemsPath(Path inputFile, Collection<String> stems) throws IOException {
 		try (BufferedReader myBufferedReader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8);) {
-			Stemmer stemmer = new SnowballStemmer(DEFAULT);
+			Stemmer stemmer = StemCache.getShared();
 			for (String line = myBufferedReader.readLine(); line != null; line = myBufferedReader.readLine()) {
 				stemLine(line, stemmer, stems);
 			}
@@ -95,10 +93,10 @@ public class TextFileStemmer {
 	 * @param line the line of words to clean, split, and stem
 	 * @return a list of cleaned and stemmed words
 	 *
-	 * @see Stemmer#stem(CharSequence)
+	 * @see StemCache#getShared()
 	 */
 	public static ArrayList<String> listStems(String line) {
-		return listStems(line, new SnowballStemmer(DEFAULT));
+		return listStems(line, StemCache.getShared());
 	}
 
 	/**
@@ -108,10 +106,10 @@ public class TextFileStemmer {
 	 * @param line the line of words to clean, split, and stem
 	 * @return a sorted set of unique cleaned and stemmed words
 	 *
-	 * @see Stemmer#stem(CharSequence)
+	 * @see StemCache#getShared()
 	 */
 	public static TreeSet<String> uniqueStems(String line) {
-		return uniqueStems(line, new SnowballStemmer(DEFAULT));
+		return uniqueStems(line, StemCache.getShared());
 	}
 
 	/**
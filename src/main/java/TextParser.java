@@ -1,4 +1,6 @@
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -46,9 +48,26 @@ public class TextParser {
 	 * @return an array of {@link String} objects
 	 *
 	 * @see #clean(String)
-	 * @see #parse(String)
+	 * @see #split(String)
+	 * @see #parse(CharSequence, Consumer)
 	 */
 	public static String[] parse(String text) {
-		return split(clean(text));
+		ArrayList<String> words = new ArrayList<>();
+		parse(text, words::add);
+		return words.toArray(new String[0]);
+	}
+
+	/**
+	 * Parses the text into clean words in a single pass, passing each word to the
+	 * consumer. Gives the same words as {@link #split(String)} of
+	 * {@link #clean(String)}.
+	 *
+	 * @param text     the text to clean and split
+	 * @param consumer where each clean word goes
+	 *
+	 * @see TextTokenizer
+	 */
+	public static void parse(CharSequence text, Consumer<String> consumer) {
+		new TextTokenizer(consumer).parse(text);
 	}
 }
@@ -0,0 +1,271 @@
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into clean words in a single pass over the characters, passing
+ * each word to a consumer as soon as it is complete. The words are exactly the
+ * same as {@link TextParser#split(String)} of {@link TextParser#clean(String)},
+ * but without creating the normalized, cleaned, lowercased and split copies of
+ * the text along the way.
+ *
+ * Plain ASCII text is cleaned and lowercased character by character. Only runs
+ * of other characters are normalized to remove diacritical marks, and only
+ * words containing other characters are lowercased using
+ * {@link String#toLowerCase()}.
+ *
+ * The text may be provided in several pieces using {@link #accept(CharSequence)}
+ * and words may span pieces. Call {@link #finish()} at the end of the text.
+ *
+ * Warning: This class is not thread-safe. Use one tokenizer per thread.
+ *
+ * @author CS 212 Software Development - Colin Inns
+ * @author University of San Francisco
+ * @version Spring 2021
+ *
+ * @see TextParser
+ */
+public class TextTokenizer {
+
+	/** The initial capacity of the word buffer. */
+	private static final int INITIAL_CAPACITY = 32;
+
+	/** where the words go */
+	private final Consumer<String> consumer;
+
+	/** the cleaned characters of the current word, not lowercased yet */
+	private char[] word;
+
+	/** the number of characters in the current word */
+	private int length;
+
+	/** {@code true} if the current word only has ASCII characters */
+	private boolean ascii;
+
+	/** a run of non-ASCII characters waiting to be normalized */
+	private final StringBuilder run;
+
+	/** {@code true} once any cleaned non-whitespace character was seen */
+	private boolean started;
+
+	/** {@code true} once any cleaned character was seen */
+	private boolean seen;
+
+	/** {@code true} if the current word comes after another cleaned character */
+	private boolean preceded;
+
+	/** {@code true} if an empty word must come before the next word */
+	private boolean leadingEmpty;
+
+	/** {@code true} if ASCII words can be lowercased by hand in this locale */
+	private final boolean asciiLowercase;
+
+	/**
+	 * Constructor for the tokenizer
+	 *
+	 * @param consumer where each word goes once it is complete
+	 */
+	public TextTokenizer(Consumer<String> consumer) {
+		this.consumer = consumer;
+		this.word = new char[INITIAL_CAPACITY];
+		this.length = 0;
+		this.ascii = true;
+		this.run = new StringBuilder();
+		this.started = false;
+		this.seen = false;
+		this.preceded = false;
+		this.leadingEmpty = false;
+
+		// these languages lowercase 'I' to something other than 'i'
+		String language = Locale.getDefault().getLanguage();
+		this.asciiLowercase = !language.equals("tr") && !language.equals("az");
+	}
+
+	/**
+	 * Tokenizes a complete piece of text, such as a single line
+	 *
+	 * @param text the text to tokenize
+	 */
+	public void parse(CharSequence text) {
+		accept(text);
+		finish();
+	}
+
+	/**
+	 * Tokenizes the next piece of the text
+	 *
+	 * @param text the next piece of text
+	 */
+	public void accept(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			accept(text.charAt(i));
+		}
+	}
+
+	/**
+	 * Tokenizes the next piece of the text
+	 *
+	 * @param chars  the characters
+	 * @param offset the index of the first character to use
+	 * @param count  the number of characters to use
+	 */
+	public void accept(char[] chars, int offset, int count) {
+		for (int i = offset; i < offset + count; i++) {
+			accept(chars[i]);
+		}
+	}
+
+	/**
+	 * Ends the text, passing on the last word and resetting the tokenizer so it
+	 * can be used for the next text
+	 */
+	public void finish() {
+		endWord();
+		started = false;
+		seen = false;
+		leadingEmpty = false;
+	}
+
+	/**
+	 * Tokenizes a single character
+	 *
+	 * @param c the character
+	 */
+	private void accept(char c) {
+		if (c < 0x80) {
+			if (run.length() > 0) {
+				normalizeRun();
+			}
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				append(c);
+				started = true;
+			} else if (c == ' ' || (c >= '\t' && c <= '\r')) {
+				endWord();
+				seen = true;
+			}
+		} else if (isSpace(c)) {
+			endWord();
+			seen = true;
+			if (!started && !Character.isWhitespace(c)) {
+				// splitting text that starts with a non-breaking space gives an empty word
+				started = true;
+				leadingEmpty = true;
+			}
+		} else {
+			run.append(c);
+		}
+	}
+
+	/**
+	 * Passes on the current word, if there is one
+	 */
+	private void endWord() {
+		if (run.length() > 0) {
+			normalizeRun();
+		}
+		if (length == 0) {
+			return;
+		}
+
+		String cleaned;
+		if (ascii && asciiLowercase) {
+			for (int i = 0; i < length; i++) {
+				if (word[i] <= 'Z') {
+					word[i] += 'a' - 'A';
+				}
+			}
+			cleaned = new String(word, 0, length);
+		} else if (preceded && contains(word, length, '\u03A3')) {
+			// whether a capital sigma is lowercased as final depends on what came before
+			cleaned = (' ' + new String(word, 0, length)).toLowerCase().substring(1);
+		} else {
+			cleaned = new String(word, 0, length).toLowerCase();
+		}
+
+		length = 0;
+		ascii = true;
+
+		if (leadingEmpty) {
+			leadingEmpty = false;
+			consumer.accept("");
+		}
+		consumer.accept(cleaned);
+	}
+
+	/**
+	 * Removes diacritical marks and non-letters from the waiting run of non-ASCII
+	 * characters and adds what is left to the current word
+	 */
+	private void normalizeRun() {
+		String normalized = Normalizer.normalize(run, Normalizer.Form.NFD);
+		run.setLength(0);
+		for (int i = 0; i < normalized.length();) {
+			int codePoint = normalized.codePointAt(i);
+			int count = Character.charCount(codePoint);
+			if (Character.isAlphabetic(codePoint)) {
+				for (int j = 0; j < count; j++) {
+					append(normalized.charAt(i + j));
+				}
+				started = true;
+			}
+			i += count;
+		}
+	}
+
+	/**
+	 * Adds a cleaned character to the current word
+	 *
+	 * @param c the character
+	 */
+	private void append(char c) {
+		if (length == 0) {
+			preceded = seen;
+			seen = true;
+		}
+		if (length == word.length) {
+			word = Arrays.copyOf(word, word.length * 2);
+		}
+		word[length++] = c;
+		if (c >= 0x80) {
+			ascii = false;
+		}
+	}
+
+	/**
+	 * Determines whether the characters contain a specific character
+	 *
+	 * @param chars  the characters to search
+	 * @param length the number of characters to search
+	 * @param c      the character to find
+	 * @return {@code true} if the character was found
+	 */
+	private static boolean contains(char[] chars, int length, char c) {
+		for (int i = 0; i < length; i++) {
+			if (chars[i] == c) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether a character is whitespace the same way the Unicode
+	 * {@code \p{Space}} character class does.
+	 *
+	 * @param c the character
+	 * @return {@code true} if the character is whitespace
+	 *
+	 * @see TextParser#SPLIT_REGEX
+	 */
+	private static boolean isSpace(char c) {
+		switch (Character.getType(c)) {
+			case Character.SPACE_SEPARATOR:
+			case Character.LINE_SEPARATOR:
+			case Character.PARAGRAPH_SEPARATOR:
+				return true;
+			default:
+				return (c >= '\t' && c <= '\r') || c == '\u0085';
+		}
+	}
+}
@@ -136,6 +136,26 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public void binaryWriter(Path filename) throws IOException {
+		indexLock.readLock().lock();
+		try {
+			super.binaryWriter(filename);
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void binaryReader(Path filename) throws IOException {
+		indexLock.writeLock().lock();
+		try {
+			super.binaryReader(filename);
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+	}
+
 	@Override
 	public List<Result> exactSearch(Set<String> queries) {
 		indexLock.readLock().lock();
@@ -156,6 +176,26 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public List<Result> exactSearch(Set<String> queries, int limit) {
+		indexLock.readLock().lock();
+		try {
+			return super.exactSearch(queries, limit);
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Result> partialSearch(Set<String> queries, int limit) {
+		indexLock.readLock().lock();
+		try {
+			return super.partialSearch(queries, limit);
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
 	@Override
 	public void add(String outerKey, String innerKey, Integer value) {
 		indexLock.writeLock().lock();
@@ -186,6 +226,16 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public void removeAll(Collection<String> locations) {
+		indexLock.writeLock().lock();
+		try {
+			super.removeAll(locations);
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+	}
+
 	/*
 	 * Methods for word count
 	 */
@@ -29,6 +29,16 @@ public class ThreadSafeSearchResults implements SearchResultsInterface {
 	 */
 	private final ThreadSafeInvertedIndex index;
 
+	/**
+	 * the most results kept for each query
+	 */
+	private final int limit;
+
+	/**
+	 * the cache shared with other searches, or null if not caching
+	 */
+	private final QueryCache cache;
+
 	/**
 	 * constructor for thread safe search results
 	 * 
@@ -36,9 +46,36 @@ public class ThreadSafeSearchResults implements SearchResultsInterface {
 	 * @param queue           the work queue
 	 */
 	public ThreadSafeSearchResults(ThreadSafeInvertedIndex myInvertedIndex, WorkQueue queue) {
+		this(myInvertedIndex, queue, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * constructor for thread safe search results, keeping only the best results
+	 * 
+	 * @param myInvertedIndex the index we will get the results from
+	 * @param queue           the work queue
+	 * @param limit           the most results kept for each query
+	 */
+	public ThreadSafeSearchResults(ThreadSafeInvertedIndex myInvertedIndex, WorkQueue queue, int limit) {
+		this(myInvertedIndex, queue, limit, null);
+	}
+
+	/**
+	 * constructor for thread safe search results, keeping only the best results
+	 * and sharing them through a cache
+	 * 
+	 * @param myInvertedIndex the index we will get the results from
+	 * @param queue           the work queue
+	 * @param limit           the most results kept for each query
+	 * @param cache           the cache of results for the index, or null
+	 */
+	public ThreadSafeSearchResults(ThreadSafeInvertedIndex myInvertedIndex, WorkQueue queue, int limit,
+			QueryCache cache) {
 		results = new TreeMap<String, List<InvertedIndex.Result>>();
 		this.index = myInvertedIndex;
 		this.queue = queue;
+		this.limit = limit;
+		this.cache = cache;
 	}
 
 	@Override
@@ -104,7 +141,7 @@ public class ThreadSafeSearchResults implements SearchResultsInterface {
 
 		@Override
 		public void run() {
-			TreeSet<String> parsed = TextFileStemmer.uniqueStems(line);
+			TreeSet<String> parsed = TextFileStemmer.uniqueStems(line, StemCache.getShared());
 			if (!parsed.isEmpty()) {
 				String joined = String.join(" ", parsed);
 				synchronized (results) {
@@ -112,7 +149,7 @@ public class ThreadSafeSearchResults implements SearchResultsInterface {
 						return;
 					}
 				}
-				var local = index.search(parsed, exact);
+				var local = cache != null ? cache.search(parsed, exact, limit) : index.search(parsed, exact, limit);
 				synchronized (results) {
 					results.put(joined, local);
 				}
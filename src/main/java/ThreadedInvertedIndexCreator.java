@@ -2,6 +2,10 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * creates an inverted index using multithreading
@@ -30,6 +34,68 @@ public class ThreadedInvertedIndexCreator extends InvertedIndexCreator {
 		workqueue.finish();
 	}
 
+	/**
+	 * creates the inverted index, optionally combining the local index of every
+	 * file in pairs on the worker threads and adding the result to the index once
+	 * at the end instead of adding every local index to it
+	 *
+	 * @param inputPath       the path that the data comes from
+	 * @param myInvertedIndex the data structure we are building
+	 * @param workqueue       the word queue that will be used
+	 * @param reduce          {@code true} to combine the local indexes first
+	 * @throws IOException in case of io exception
+	 */
+	public static void createInvertedIndex(Path inputPath, ThreadSafeInvertedIndex myInvertedIndex, WorkQueue workqueue,
+			boolean reduce) throws IOException {
+		if (!reduce) {
+			createInvertedIndex(inputPath, myInvertedIndex, workqueue);
+			return;
+		}
+
+		Reducer reducer = new Reducer();
+		if (Files.isDirectory(inputPath)) {
+			for (Path currentPath : DirectoryNavigator.findPaths(inputPath)) {
+				workqueue.execute(new Task(currentPath, reducer::add));
+			}
+		} else {
+			workqueue.execute(new Task(inputPath, reducer::add));
+		}
+		workqueue.finish();
+
+		InvertedIndex reduced = reducer.get();
+		if (reduced != null) {
+			myInvertedIndex.addAll(reduced);
+		}
+	}
+
+	/**
+	 * updates the index with only the files under the input path that were added
+	 * or changed since the manifest was last updated, and drops the files that
+	 * were removed
+	 *
+	 * @param inputPath       the file or directory being indexed
+	 * @param myInvertedIndex the index built from the files last time
+	 * @param workqueue       the work queue that will be used
+	 * @param manifest        the files the index was built from
+	 * @return the changes found
+	 * @throws IOException if unable to read a file, in which case the manifest no
+	 *                     longer matches the index and should not be saved
+	 */
+	public static FileManifest.Changes updateInvertedIndex(Path inputPath, ThreadSafeInvertedIndex myInvertedIndex,
+			WorkQueue workqueue, FileManifest manifest) throws IOException {
+		FileManifest.Changes changes = manifest.update(inputPath);
+		myInvertedIndex.removeAll(changes.getDropped());
+		List<Path> failed = Collections.synchronizedList(new ArrayList<>());
+		for (Path currentPath : changes.getChanged()) {
+			workqueue.execute(new Task(currentPath, myInvertedIndex::addAll, failed::add));
+		}
+		workqueue.finish();
+		if (!failed.isEmpty()) {
+			throw new IOException("Unable to read " + failed.size() + " changed files, starting with " + failed.get(0));
+		}
+		return changes;
+	}
+
 	/**
 	 * stems a single file
 	 *
@@ -41,8 +107,7 @@ public class ThreadedInvertedIndexCreator extends InvertedIndexCreator {
 	 */
 	public static void singleFileStemmer(Path inputPath, ThreadSafeInvertedIndex myInvertedIndex, WorkQueue workqueue)
 			throws IOException {
-		String location = inputPath.toString();
-		workqueue.execute(new Task(inputPath, myInvertedIndex, location));
+		workqueue.execute(new Task(inputPath, myInvertedIndex::addAll));
 	}
 
 	/**
@@ -73,19 +138,33 @@ public class ThreadedInvertedIndexCreator extends InvertedIndexCreator {
 		/** buffered reader */
 		private final Path inputPath;
 
-		/** the index we write to */
-		private final ThreadSafeInvertedIndex myInvertedIndex;
+		/** where the local index goes once it is built */
+		private final Consumer<InvertedIndex> destination;
+
+		/** where the path goes if unable to read it, or null to only print it */
+		private final Consumer<Path> failed;
 
 		/**
 		 * constructor for task
 		 * 
-		 * @param inputPath       the location we are getting it from
-		 * @param myInvertedIndex the index we are building to
-		 * @param location        the location we found it
+		 * @param inputPath   the location we are getting it from
+		 * @param destination where the local index goes once it is built
 		 */
-		public Task(Path inputPath, ThreadSafeInvertedIndex myInvertedIndex, String location) {
+		public Task(Path inputPath, Consumer<InvertedIndex> destination) {
+			this(inputPath, destination, null);
+		}
+
+		/**
+		 * constructor for task that reports the path if unable to read it
+		 * 
+		 * @param inputPath   the location we are getting it from
+		 * @param destination where the local index goes once it is built
+		 * @param failed      where the path goes if unable to read it
+		 */
+		public Task(Path inputPath, Consumer<InvertedIndex> destination, Consumer<Path> failed) {
 			this.inputPath = inputPath;
-			this.myInvertedIndex = myInvertedIndex;
+			this.destination = destination;
+			this.failed = failed;
 		}
 
 		@Override
@@ -93,11 +172,65 @@ public class ThreadedInvertedIndexCreator extends InvertedIndexCreator {
 			InvertedIndex local = new InvertedIndex();
 			try {
 				InvertedIndexCreator.singleFileStemmer(inputPath, local);
-				myInvertedIndex.addAll(local);
+				destination.accept(local);
 			} catch (IOException e) {
 				System.out.println("Unable to rad path: " + inputPath);
+				if (failed != null) {
+					failed.accept(inputPath);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Combines local indexes in pairs as they are finished. Whenever an index
+	 * is added while another one is waiting, the thread that added it merges
+	 * the smaller of the two into the larger outside of the lock and adds the
+	 * merged index again, so merges happen on every worker at the same time
+	 * and every index is only merged into a larger one.
+	 * 
+	 * @author colininns
+	 *
+	 */
+	private static class Reducer {
+
+		/** the index waiting for another one to merge with */
+		private InvertedIndex waiting;
+
+		/**
+		 * adds a finished local index
+		 * 
+		 * @param local the local index
+		 */
+		public void add(InvertedIndex local) {
+			InvertedIndex current = local;
+			while (true) {
+				InvertedIndex other;
+				synchronized (this) {
+					if (waiting == null) {
+						waiting = current;
+						return;
+					}
+					other = waiting;
+					waiting = null;
+				}
+
+				if (other.sizeWords() > current.sizeWords()) {
+					other.addAll(current);
+					current = other;
+				} else {
+					current.addAll(other);
+				}
+			}
+		}
+
+		/**
+		 * gets the combined index, call once every local index was added
+		 * 
+		 * @return the combined index, or null if none were added
+		 */
+		public synchronized InvertedIndex get() {
+			return waiting;
+		}
+	}
 }
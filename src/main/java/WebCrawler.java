@@ -1,8 +1,10 @@
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * class that efficiently crawls through the web using a multithreaded aproach
@@ -11,32 +13,226 @@ import java.util.HashSet;
  *
  */
 public class WebCrawler {
-	/** stores all the urls we used */
-	private final HashSet<String> usedUrls;
+	/** stores the fingerprints of all the urls we used */
+	private final ConcurrentLongSet usedUrls;
+	/** the number of urls we used, never more than max once the crawl is full */
+	private final AtomicInteger used;
 	/** the max urls */
 	private final Integer max;
+	/** the open connections to reuse, or null */
+	private final ConnectionPool pool;
+	/** decides when every page is fetched, or null to fetch them right away */
+	private final CrawlFrontier frontier;
+	/** saves the progress of the crawl, or null */
+	private final CrawlCheckpoint checkpoint;
+	/** stops pages from being added while a checkpoint is saved */
+	private final ReadWriteLock checkpointLock;
+	/** the urls used but not indexed yet, only kept for checkpoints */
+	private final Set<String> pending;
+	/** the max bytes streamed from a page, or 0 to fetch every page whole */
+	private final long maxPage;
+	/** skips pages whose text was already indexed, or null */
+	private final DuplicateDetector duplicates;
 
 	/**
 	 * constructor for web crawler
+	 * 
+	 * @param max the max amount of urls
 	 */
 	public WebCrawler(int max) {
-		usedUrls = new HashSet<String>();
+		this(max, null);
+	}
+
+	/**
+	 * constructor for web crawler that reuses connections
+	 * 
+	 * @param max  the max amount of urls
+	 * @param pool the open connections to reuse, or null
+	 */
+	public WebCrawler(int max, ConnectionPool pool) {
+		this(max, pool, null);
+	}
+
+	/**
+	 * constructor for web crawler that fetches pages when the frontier says so
+	 * 
+	 * @param max      the max amount of urls
+	 * @param pool     the open connections to reuse, or null
+	 * @param frontier decides when every page is fetched, or null to fetch them
+	 *                 right away
+	 */
+	public WebCrawler(int max, ConnectionPool pool, CrawlFrontier frontier) {
+		this(max, pool, frontier, null);
+	}
+
+	/**
+	 * constructor for web crawler that saves its progress
+	 * 
+	 * @param max        the max amount of urls
+	 * @param pool       the open connections to reuse, or null
+	 * @param frontier   decides when every page is fetched, or null to fetch
+	 *                   them right away
+	 * @param checkpoint saves the progress of the crawl, or null
+	 */
+	public WebCrawler(int max, ConnectionPool pool, CrawlFrontier frontier, CrawlCheckpoint checkpoint) {
+		this(max, pool, frontier, checkpoint, 0);
+	}
+
+	/**
+	 * constructor for web crawler that streams every page into the index while
+	 * it arrives, instead of fetching the whole page first
+	 * 
+	 * @param max        the max amount of urls
+	 * @param pool       the open connections to reuse, or null
+	 * @param frontier   decides when every page is fetched, or null to fetch
+	 *                   them right away
+	 * @param checkpoint saves the progress of the crawl, or null
+	 * @param maxPage    the max bytes streamed from a page, or 0 to fetch every
+	 *                   page whole
+	 */
+	public WebCrawler(int max, ConnectionPool pool, CrawlFrontier frontier, CrawlCheckpoint checkpoint,
+			long maxPage) {
+		this(max, pool, frontier, checkpoint, maxPage, null);
+	}
+
+	/**
+	 * constructor for web crawler that skips pages whose text was already
+	 * indexed
+	 * 
+	 * @param max        the max amount of urls
+	 * @param pool       the open connections to reuse, or null
+	 * @param frontier   decides when every page is fetched, or null to fetch
+	 *                   them right away
+	 * @param checkpoint saves the progress of the crawl, or null
+	 * @param maxPage    the max bytes streamed from a page, or 0 to fetch every
+	 *                   page whole
+	 * @param duplicates skips pages whose text was already indexed, or null
+	 */
+	public WebCrawler(int max, ConnectionPool pool, CrawlFrontier frontier, CrawlCheckpoint checkpoint,
+			long maxPage, DuplicateDetector duplicates) {
+		usedUrls = new ConcurrentLongSet();
+		used = new AtomicInteger();
 		this.max = max;
+		this.pool = pool;
+		this.frontier = frontier;
+		this.checkpoint = checkpoint;
+		this.checkpointLock = new ReadWriteLock();
+		this.pending = ConcurrentHashMap.newKeySet();
+		this.maxPage = Math.max(maxPage, 0);
+		this.duplicates = duplicates;
 	}
 
 	/**
 	 * crawls through from a desired seed
 	 * 
 	 * @param seed            the starting url
-	 * @param inputmax        the max amount of urls
 	 * @param queue           the work queue
 	 * @param myInvertedIndex the index we add to
 	 * @throws IOException in case we ahve a problem reading
 	 */
 	public void crawl(URL seed, WorkQueue queue, InvertedIndex myInvertedIndex) throws IOException {
-		usedUrls.add(seed.toString());
-		queue.execute(new Task(seed, myInvertedIndex, queue));
+		use(seed);
+		crawl(List.of(seed), queue, myInvertedIndex);
+	}
+
+	/**
+	 * resumes the crawl saved in the checkpoint, fetching only the pages that
+	 * were not indexed yet
+	 * 
+	 * @param queue           the work queue
+	 * @param myInvertedIndex the index we add to, empty before resuming
+	 * @throws IOException if unable to load the checkpoint
+	 */
+	public void resume(WorkQueue queue, InvertedIndex myInvertedIndex) throws IOException {
+		List<String> saved = checkpoint.load(myInvertedIndex, usedUrls, duplicates);
+		used.set(usedUrls.size());
+		ArrayList<URL> urls = new ArrayList<URL>();
+		for (String url : saved) {
+			urls.add(new URL(url));
+		}
+		crawl(urls, queue, myInvertedIndex);
+	}
+
+	/**
+	 * Helper function that crawls from urls already marked as used, then saves a
+	 * final checkpoint
+	 * 
+	 * @param urls            the urls to start from
+	 * @param queue           the work queue
+	 * @param myInvertedIndex the index we add to
+	 */
+	private void crawl(List<URL> urls, WorkQueue queue, InvertedIndex myInvertedIndex) {
+		if (frontier != null) {
+			frontier.start(queue, url -> new Task(url, myInvertedIndex, queue).run());
+		}
+		checkpointLock.readLock().lock();
+		try {
+			for (URL url : urls) {
+				schedule(url, myInvertedIndex, queue);
+			}
+		} finally {
+			checkpointLock.readLock().unlock();
+		}
+		if (frontier != null) {
+			frontier.finish();
+		}
 		queue.finish();
+		if (checkpoint != null) {
+			save(myInvertedIndex);
+		}
+	}
+
+	/**
+	 * Helper function that saves a checkpoint once every page being added is
+	 * done
+	 * 
+	 * @param myInvertedIndex the index we add to
+	 */
+	private void save(InvertedIndex myInvertedIndex) {
+		checkpointLock.writeLock().lock();
+		try {
+			checkpoint.save(myInvertedIndex, usedUrls, pending, duplicates);
+		} catch (IOException e) {
+			System.out.println("Unable to save crawl checkpoint to " + checkpoint.toString());
+		} finally {
+			checkpointLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Helper function that marks a url as used if there is room for it
+	 * 
+	 * @param url the url
+	 * @return {@code true} if the url was new and there was room, so it should
+	 *         be fetched
+	 */
+	private boolean use(URL url) {
+		if (used.get() >= max) {
+			return false;
+		}
+		if (!usedUrls.add(ConcurrentLongSet.fingerprint(url.toString()))) {
+			return false;
+		}
+		return used.incrementAndGet() <= max;
+	}
+
+	/**
+	 * Helper function that fetches a page right away, or once the frontier says
+	 * its host is ready
+	 * 
+	 * @param url             the url of the page
+	 * @param myInvertedIndex the index we add to
+	 * @param queue           the work queue
+	 */
+	private void schedule(URL url, InvertedIndex myInvertedIndex, WorkQueue queue) {
+		if (checkpoint != null) {
+			pending.add(url.toString());
+		}
+		if (frontier != null) {
+			frontier.add(url);
+		} else {
+			queue.execute(new Task(url, myInvertedIndex, queue));
+		}
 	}
 
 	/**
@@ -61,8 +257,6 @@ public class WebCrawler {
 		 * @param seed            the seed url
 		 * @param myInvertedIndex the index
 		 * @param queue           the workqueue
-		 * @param inputmax        the max urls
-		 * @param usedUrls        the used urls
 		 */
 		public Task(URL seed, InvertedIndex myInvertedIndex, WorkQueue queue) {
 			this.seed = seed;
@@ -72,22 +266,116 @@ public class WebCrawler {
 
 		@Override
 		public void run() {
-			ArrayList<URL> urlList = new ArrayList<URL>();
-			String html = HtmlFetcher.fetch(seed, 3);
+			if (maxPage > 0) {
+				ArrayList<String> hrefs = new ArrayList<String>();
+				DuplicateDetector.Fingerprint fingerprint = duplicates == null ? null : duplicates.fingerprint();
+				InvertedIndex page = stream(hrefs, fingerprint);
+				commit(() -> add(hrefs, page, fingerprint));
+			} else {
+				String html = HtmlFetcher.fetch(seed, 3, pool);
+				commit(() -> add(html));
+			}
+		}
+
+		/**
+		 * Adds a fetched page, so that a checkpoint sees either all or none of what
+		 * the page adds
+		 * 
+		 * @param add adds the page
+		 */
+		private void commit(Runnable add) {
+			if (checkpoint == null) {
+				add.run();
+				return;
+			}
+
+			checkpointLock.readLock().lock();
+			try {
+				add.run();
+				pending.remove(seed.toString());
+			} finally {
+				checkpointLock.readLock().unlock();
+			}
+			if (checkpoint.due()) {
+				save(myInvertedIndex);
+			}
+		}
+
+		/**
+		 * Schedules the links of the fetched page and adds its words to the index,
+		 * unless the page is a duplicate
+		 * 
+		 * @param html the fetched page, or null if it could not be fetched
+		 */
+		private void add(String html) {
 			if (html != null) {
-				html = HtmlCleaner.stripBlockElements(html);
-				urlList = LinkParser.getValidLinks(seed, html);
-				synchronized (usedUrls) {
-					for (URL currentUrl : urlList) {
-						if (usedUrls.size() < max) {
-							if (usedUrls.add(currentUrl.toString())) {
-								queue.execute(new Task(currentUrl, myInvertedIndex, queue));
-							} 
-						} 
+				ArrayList<String> hrefs = new ArrayList<String>();
+				String text = HtmlScanner.scan(html, hrefs::add);
+				ArrayList<String> words = new ArrayList<String>();
+				TextParser.parse(text, words::add);
+				if (duplicates != null) {
+					DuplicateDetector.Fingerprint fingerprint = duplicates.fingerprint();
+					words.forEach(fingerprint);
+					if (!duplicates.add(fingerprint)) {
+						return;
 					}
+				}
 
+				ArrayList<URL> urlList = LinkParser.getValidLinks(seed, hrefs);
+				for (URL currentUrl : urlList) {
+					if (use(currentUrl)) {
+						schedule(currentUrl, myInvertedIndex, queue);
+					}
+				}
+				myInvertedIndex.addAll(words, seed.toString());
+			}
+		}
+
+		/**
+		 * Streams the page through the scanner, tokenizer and stemmer into an index
+		 * of its own, a buffer at a time, so only the words of the page are kept
+		 * and never its html or text
+		 * 
+		 * @param hrefs       the list the links of the page are added to
+		 * @param fingerprint the fingerprint the words are passed to, or null
+		 * @return the index of the page, or null if it could not be fetched
+		 */
+		private InvertedIndex stream(ArrayList<String> hrefs, DuplicateDetector.Fingerprint fingerprint) {
+			String location = seed.toString();
+			InvertedIndex page = new InvertedIndex();
+			int[] position = new int[1];
+			TextTokenizer tokenizer = new TextTokenizer(word -> {
+				page.add(word, location, ++position[0]);
+				if (fingerprint != null) {
+					fingerprint.accept(word);
+				}
+			});
+			HtmlScanner scanner = new HtmlScanner(tokenizer::accept, hrefs::add);
+			if (!HtmlFetcher.stream(seed, 3, pool, maxPage, scanner)) {
+				return null;
+			}
+			scanner.finish();
+			tokenizer.finish();
+			return page;
+		}
+
+		/**
+		 * Schedules the links of the streamed page and adds its index to the index,
+		 * unless the page is a duplicate
+		 * 
+		 * @param hrefs       the links of the page
+		 * @param page        the index of the page, or null if it could not be
+		 *                    fetched
+		 * @param fingerprint the fingerprint of the page, or null
+		 */
+		private void add(ArrayList<String> hrefs, InvertedIndex page, DuplicateDetector.Fingerprint fingerprint) {
+			if (page != null && (fingerprint == null || duplicates.add(fingerprint))) {
+				for (URL currentUrl : LinkParser.getValidLinks(seed, hrefs)) {
+					if (use(currentUrl)) {
+						schedule(currentUrl, myInvertedIndex, queue);
+					}
 				}
-				myInvertedIndex.addAll(Arrays.asList(TextParser.parse(HtmlCleaner.stripHtml(html))), seed.toString());
+				myInvertedIndex.addAll(page);
 			}
 		}
 
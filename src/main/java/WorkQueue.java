@@ -1,10 +1,18 @@
 import java.util.LinkedList;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A simple work queue implementation based on the IBM developerWorks article by
  * Brian Goetz. It is up to the user of this class to keep track of whether
  * there is any pending work remaining.
  *
+ * A work queue created by {@link #virtual(int)} does not keep a pool of worker
+ * threads. Instead, every task is started on a new virtual thread, as long as
+ * fewer than a maximum number of tasks are running; the rest wait in the queue
+ * and are run by the threads of finishing tasks. Blocking tasks, such as
+ * fetching a web page with a socket, can then run by the thousands. On Java
+ * versions without virtual threads, platform threads are used instead.
+ *
  * @see <a href="https://www.ibm.com/developerworks/library/j-jtp0730/"> Java
  *      Theory and Practice: Thread Pools and Work Queues</a>
  * 
@@ -29,12 +37,33 @@ public class WorkQueue {
 	/** The default number of threads to use when not specified. */
 	public static final int DEFAULT = 5;
 
+	/** The default max number of tasks running at once on virtual threads. */
+	public static final int DEFAULT_VIRTUAL = 1_000;
+
+	/**
+	 * The max number of tasks running at once on a thread each when virtual
+	 * threads are not available.
+	 */
+	public static final int MAX_PLATFORM = 64;
+
 	/** Logger used for this class. */
 	// private static final Logger log = LogManager.getLogger();
 
 	/** pending tracks how many pending work. */
 	private int pending;
 
+	/** creates a thread for every task, or null if using worker threads */
+	private final ThreadFactory factory;
+
+	/** the max number of tasks running at once when creating a thread for every task */
+	private final int maxRunning;
+
+	/** the number of tasks running when creating a thread for every task */
+	private int running;
+
+	/** {@code true} if tasks run on virtual threads */
+	private final boolean virtual;
+
 	/**
 	 * Starts a work queue with the default number of threads.
 	 *
@@ -53,6 +82,10 @@ public class WorkQueue {
 		this.queue = new LinkedList<Runnable>();
 		this.workers = new Worker[threads];
 		this.pending = 0;
+		this.factory = null;
+		this.maxRunning = 0;
+		this.running = 0;
+		this.virtual = false;
 
 		shutdown = false;
 
@@ -64,6 +97,71 @@ public class WorkQueue {
 
 	}
 
+	/**
+	 * Starts a work queue that creates a thread for every task instead of using
+	 * worker threads.
+	 *
+	 * @param maxRunning the max number of tasks running at once
+	 * @param factory    creates the thread for every task
+	 * @param virtual    {@code true} if the factory creates virtual threads
+	 */
+	private WorkQueue(int maxRunning, ThreadFactory factory, boolean virtual) {
+		this.queue = new LinkedList<Runnable>();
+		this.workers = new Worker[0];
+		this.pending = 0;
+		this.factory = factory;
+		this.maxRunning = Math.max(maxRunning, 1);
+		this.running = 0;
+		this.virtual = virtual;
+
+		shutdown = false;
+	}
+
+	/**
+	 * Starts a work queue that runs every task on its own virtual thread, or its
+	 * own platform thread if virtual threads are not available.
+	 *
+	 * @param maxRunning the max number of tasks running at once
+	 * @return the work queue
+	 *
+	 * @see #isVirtual()
+	 */
+	public static WorkQueue virtual(int maxRunning) {
+		ThreadFactory factory = virtualThreadFactory();
+		if (factory != null) {
+			return new WorkQueue(maxRunning, factory, true);
+		}
+		return new WorkQueue(maxRunning, task -> {
+			Thread thread = new Thread(task);
+			thread.setName("Worker" + thread.getName());
+			return thread;
+		}, false);
+	}
+
+	/**
+	 * Creates virtual threads if this version of Java has them. The compiler
+	 * release of this project does not, so they are found by reflection.
+	 *
+	 * @return a factory for virtual threads, or null if not available
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether tasks run on virtual threads.
+	 *
+	 * @return {@code true} if tasks run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
 	/**
 	 * Adds a work request to the queue. A thread will process this request when
 	 * available.
@@ -74,6 +172,17 @@ public class WorkQueue {
 		synchronized (this) {
 			pending++;
 		}
+		if (factory != null) {
+			synchronized (queue) {
+				if (running >= maxRunning || shutdown) {
+					queue.addLast(task);
+					return;
+				}
+				running++;
+			}
+			factory.newThread(new Runner(task)).start();
+			return;
+		}
 		synchronized (queue) {
 			queue.addLast(task);
 			queue.notifyAll();
@@ -127,15 +236,29 @@ public class WorkQueue {
 			}
 		}
 
+		synchronized (queue) {
+			while (running > 0) {
+				try {
+					queue.wait();
+				} catch (InterruptedException e) {
+					System.err.println("Warning: Work queue interrupted while joining.");
+
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
 	}
 
 	/**
-	 * Returns the number of worker threads being used by the work queue.
+	 * Returns the number of worker threads being used by the work queue, or the
+	 * max number of tasks running at once when creating a thread for every task.
 	 *
 	 * @return number of worker threads
 	 */
 	public int size() {
-		return workers.length;
+		return factory != null ? maxRunning : workers.length;
 	}
 
 	/**
@@ -204,4 +327,46 @@ public class WorkQueue {
 		}
 	}
 
+	/**
+	 * Runs a task on its own thread, then keeps running tasks waiting in the
+	 * queue until there are none left. Used instead of the worker threads when
+	 * creating a thread for every task.
+	 */
+	private class Runner implements Runnable {
+		/** the first task to run */
+		private final Runnable first;
+
+		/**
+		 * Initializes a runner for a task.
+		 *
+		 * @param first the first task to run
+		 */
+		public Runner(Runnable first) {
+			this.first = first;
+		}
+
+		@Override
+		public void run() {
+			Runnable task = first;
+
+			while (task != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					System.err.println("Warning: Work queue encountered an exception while running.");
+				} finally {
+					decrementPending();
+				}
+
+				synchronized (queue) {
+					task = shutdown ? null : queue.pollFirst();
+					if (task == null) {
+						running--;
+						queue.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
 }
\ No newline at end of file